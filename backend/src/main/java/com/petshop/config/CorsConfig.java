@@ -27,7 +27,8 @@ public class CorsConfig {
                 "Authorization",
                 "X-Requested-With",
                 "Access-Control-Request-Method",
-                "Access-Control-Request-Headers"
+                "Access-Control-Request-Headers",
+                "Idempotency-Key"
         ));
         corsConfiguration.setExposedHeaders(Arrays.asList(
                 "Origin",
@@ -1,7 +1,14 @@
 package com.petshop.config;
 
 import com.petshop.entity.User;
+import com.petshop.repository.OrderRepository;
+import com.petshop.repository.OrderSoldCountRepository;
+import com.petshop.repository.ProductRatingStatsRepository;
+import com.petshop.repository.ProductRepository;
+import com.petshop.repository.ReviewRepository;
+import com.petshop.repository.UserPurchaseRepository;
 import com.petshop.repository.UserRepository;
+import com.petshop.service.support.ProductRatingAggregator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -12,6 +19,13 @@ import org.springframework.stereotype.Component;
 public class DataSeeder implements CommandLineRunner {
 
     private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final ProductRatingStatsRepository productRatingStatsRepository;
+    private final ReviewRepository reviewRepository;
+    private final ProductRatingAggregator productRatingAggregator;
+    private final UserPurchaseRepository userPurchaseRepository;
+    private final OrderSoldCountRepository orderSoldCountRepository;
     private final PasswordEncoder passwordEncoder;
 
     @Override
@@ -30,5 +44,26 @@ public class DataSeeder implements CommandLineRunner {
             userRepository.save(admin);
             System.out.println(">>> Đã tạo tài khoản Admin mặc định: admin@petshop.com / admin123");
         }
+
+        // Điền ảnh đại diện cho sản phẩm cũ
+        productRepository.backfillPrimaryImageUrls();
+
+        // Điền tổng số sản phẩm cho đơn hàng cũ
+        orderRepository.backfillTotalItems();
+
+        // Dựng bảng tổng hợp đánh giá lần đầu (shop chưa có review nào thì không có gì để dựng)
+        if (productRatingStatsRepository.count() == 0 && reviewRepository.existsRated()) {
+            productRatingAggregator.reconcileAll();
+        }
+
+        // Dựng chỉ mục sản phẩm đã mua lần đầu
+        if (userPurchaseRepository.count() == 0) {
+            userPurchaseRepository.backfillFromCompletedOrders();
+        }
+
+        // Ghi trạng thái số lượng đã bán cho đơn cũ lần đầu
+        if (orderSoldCountRepository.count() == 0) {
+            orderSoldCountRepository.backfillFromOrders();
+        }
     }
 }
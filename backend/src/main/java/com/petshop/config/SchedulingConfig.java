@@ -0,0 +1,13 @@
+package com.petshop.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Bật các tác vụ @Scheduled; test tắt bằng petshop.scheduling.enabled=false
+// để luồng nền không chạy SQL xen vào phép đo của test
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "petshop.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -64,6 +64,7 @@ public class SecurityConfig {
                         // Public GET - Services
                         .requestMatchers(HttpMethod.GET, "/api/services").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/services/{id}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/services/{id}/quote").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/services/slug/**").permitAll()
                         
                         // Public GET - Reviews
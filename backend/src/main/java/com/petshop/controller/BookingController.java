@@ -1,9 +1,14 @@
 package com.petshop.controller;
 
 import com.petshop.dto.request.BookingRequest;
+import com.petshop.dto.request.BulkBookingStatusRequest;
+import com.petshop.dto.response.BookingCalendarDTO;
 import com.petshop.dto.response.BookingDTO;
+import com.petshop.dto.response.BulkActionResultDTO;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.entity.Booking;
 import com.petshop.service.BookingService;
+import com.petshop.service.support.IdempotencyStore;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -27,11 +32,15 @@ import java.util.Map;
 public class BookingController {
     
     private final BookingService bookingService;
+    private final IdempotencyStore idempotencyStore;
     
     // Customer endpoints
     @PostMapping
-    public ResponseEntity<BookingDTO> createBooking(@Valid @RequestBody BookingRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(bookingService.createBooking(request));
+    public ResponseEntity<BookingDTO> createBooking(@Valid @RequestBody BookingRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        BookingDTO result = idempotencyStore.execute("booking", idempotencyKey, request, BookingDTO.class,
+            () -> bookingService.createBooking(request));
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
     }
     
     @GetMapping("/my-bookings")
@@ -57,12 +66,12 @@ public class BookingController {
     }
     
     @GetMapping("/check-availability")
-    public ResponseEntity<Map<String, Boolean>> checkAvailability(
+    public ResponseEntity<Map<String, Object>> checkAvailability(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime) {
-        boolean available = bookingService.isTimeSlotAvailable(date, startTime, endTime);
-        return ResponseEntity.ok(Map.of("available", available));
+        int remaining = bookingService.getRemainingCapacity(date, startTime, endTime);
+        return ResponseEntity.ok(Map.of("available", remaining > 0, "remainingCapacity", remaining));
     }
     
     // Admin/Staff endpoints
@@ -80,6 +89,14 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getBookingsByDate(date));
     }
     
+    @GetMapping("/calendar")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<BookingCalendarDTO> getCalendar(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(bookingService.getCalendar(from, to));
+    }
+    
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<Page<BookingDTO>> getBookingsByStatus(
@@ -89,6 +106,16 @@ public class BookingController {
             Booking.BookingStatus.valueOf(status.toUpperCase()), pageable));
     }
     
+    @GetMapping("/status/{status}/cursor")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<CursorPageDTO<BookingDTO>> getBookingsByStatusByCursor(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(bookingService.getBookingsByStatusByCursor(
+            Booking.BookingStatus.valueOf(status.toUpperCase()), cursor, size));
+    }
+    
     @PostMapping("/{id}/confirm")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<BookingDTO> confirmBooking(@PathVariable Long id) {
@@ -121,6 +148,13 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.markNoShow(id));
     }
     
+    @PostMapping("/bulk-status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<BulkActionResultDTO> bulkUpdateStatus(
+            @Valid @RequestBody BulkBookingStatusRequest request) {
+        return ResponseEntity.ok(bookingService.bulkUpdateStatus(request));
+    }
+    
     @PostMapping("/{id}/assign-staff")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<BookingDTO> assignStaff(@PathVariable Long id, 
@@ -1,6 +1,7 @@
 package com.petshop.controller;
 
 import com.petshop.dto.request.CartItemRequest;
+import com.petshop.dto.request.CartMergeRequest;
 import com.petshop.dto.response.CartDTO;
 import com.petshop.dto.response.CartItemDTO;
 import com.petshop.service.CartService;
@@ -26,6 +27,11 @@ public class CartController {
         return ResponseEntity.ok(cartService.addToCart(request));
     }
     
+    @PostMapping("/merge")
+    public ResponseEntity<CartDTO> mergeCart(@Valid @RequestBody CartMergeRequest request) {
+        return ResponseEntity.ok(cartService.mergeCart(request));
+    }
+    
     @PutMapping("/{itemId}")
     public ResponseEntity<CartItemDTO> updateCartItem(@PathVariable Long itemId, 
                                                    @RequestParam int quantity) {
@@ -1,7 +1,9 @@
 package com.petshop.controller;
 
+import com.petshop.dto.response.ConflictStatsDTO;
 import com.petshop.dto.response.DashboardDTO;
 import com.petshop.service.DashboardService;
+import com.petshop.service.support.ConflictRetry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -9,6 +11,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -17,6 +20,7 @@ import java.time.LocalDate;
 public class DashboardController {
     
     private final DashboardService dashboardService;
+    private final ConflictRetry conflictRetry;
     
     @GetMapping
     public ResponseEntity<DashboardDTO> getDashboard() {
@@ -29,4 +33,10 @@ public class DashboardController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         return ResponseEntity.ok(dashboardService.getDashboard(startDate, endDate));
     }
+    
+    // Tỉ lệ xung đột ghi đồng thời theo thao tác (từ lúc node khởi động)
+    @GetMapping("/conflicts")
+    public ResponseEntity<List<ConflictStatsDTO>> getConflictStats() {
+        return ResponseEntity.ok(conflictRetry.getStats());
+    }
 }
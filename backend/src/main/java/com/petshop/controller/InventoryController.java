@@ -1,9 +1,12 @@
 package com.petshop.controller;
 
 import com.petshop.dto.request.StockMovementRequest;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.dto.response.ProductVariantDTO;
 import com.petshop.dto.response.StockMovementDTO;
 import com.petshop.service.InventoryService;
+import com.petshop.service.support.ConflictRetry;
+import com.petshop.service.support.StockAlertFeed;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -11,9 +14,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -24,15 +29,19 @@ import java.util.List;
 public class InventoryController {
     
     private final InventoryService inventoryService;
+    private final ConflictRetry conflictRetry;
+    private final StockAlertFeed stockAlertFeed;
     
     @PostMapping("/import")
     public ResponseEntity<StockMovementDTO> importStock(@Valid @RequestBody StockMovementRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(inventoryService.importStock(request));
+        return ResponseEntity.status(HttpStatus.CREATED).body(
+            conflictRetry.execute("inventory.import", () -> inventoryService.importStock(request)));
     }
     
     @PostMapping("/adjust")
     public ResponseEntity<StockMovementDTO> adjustStock(@Valid @RequestBody StockMovementRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(inventoryService.adjustStock(request));
+        return ResponseEntity.status(HttpStatus.CREATED).body(
+            conflictRetry.execute("inventory.adjust", () -> inventoryService.adjustStock(request)));
     }
     
     @GetMapping("/movements/{variantId}")
@@ -42,6 +51,14 @@ public class InventoryController {
         return ResponseEntity.ok(inventoryService.getStockMovements(variantId, pageable));
     }
     
+    @GetMapping("/movements/{variantId}/cursor")
+    public ResponseEntity<CursorPageDTO<StockMovementDTO>> getStockMovementsByCursor(
+            @PathVariable Long variantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(inventoryService.getStockMovementsByCursor(variantId, cursor, size));
+    }
+    
     @GetMapping("/low-stock")
     public ResponseEntity<List<ProductVariantDTO>> getLowStockProducts() {
         return ResponseEntity.ok(inventoryService.getLowStockProducts());
@@ -51,4 +68,17 @@ public class InventoryController {
     public ResponseEntity<List<ProductVariantDTO>> getOutOfStockProducts() {
         return ResponseEntity.ok(inventoryService.getOutOfStockProducts());
     }
+    
+    @PutMapping("/variants/{variantId}/low-stock-threshold")
+    public ResponseEntity<ProductVariantDTO> updateLowStockThreshold(@PathVariable Long variantId,
+                                                                     @RequestParam int threshold) {
+        return ResponseEntity.ok(conflictRetry.execute("inventory.threshold",
+            () -> inventoryService.updateLowStockThreshold(variantId, threshold)));
+    }
+    
+    // Cảnh báo khi biến thể chuyển sang sắp hết / hết hàng / có hàng trở lại (Server-Sent Events)
+    @GetMapping(value = "/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStockAlerts() {
+        return stockAlertFeed.subscribe();
+    }
 }
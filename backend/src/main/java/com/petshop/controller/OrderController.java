@@ -1,9 +1,15 @@
 package com.petshop.controller;
 
+import com.petshop.dto.request.BulkOrderStatusRequest;
 import com.petshop.dto.request.OrderRequest;
+import com.petshop.dto.response.BulkActionResultDTO;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.dto.response.OrderDTO;
+import com.petshop.dto.response.OrderSummaryDTO;
 import com.petshop.entity.Order;
 import com.petshop.service.OrderService;
+import com.petshop.service.support.ConflictRetry;
+import com.petshop.service.support.IdempotencyStore;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -21,12 +27,18 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
     
     private final OrderService orderService;
+    private final IdempotencyStore idempotencyStore;
+    private final ConflictRetry conflictRetry;
     
     // === Customer endpoints ===
     
     @PostMapping
-    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody OrderRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(orderService.createOrder(request));
+    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody OrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Mỗi lần thử là một transaction mới gồm cả key và đơn hàng
+        OrderDTO result = conflictRetry.execute("order.create", () -> idempotencyStore.execute("order",
+            idempotencyKey, request, OrderDTO.class, () -> orderService.createOrder(request)));
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
     }
     
     @GetMapping("/my-orders")
@@ -35,6 +47,14 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getMyOrders(pageable));
     }
     
+    // Phân trang theo con trỏ (không đếm tổng), dùng cho danh sách dài
+    @GetMapping("/my-orders/cursor")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getMyOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(orderService.getMyOrdersByCursor(cursor, size));
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long id) {
         return ResponseEntity.ok(orderService.getOrderById(id));
@@ -48,7 +68,7 @@ public class OrderController {
     @PostMapping("/{id}/cancel")
     public ResponseEntity<OrderDTO> cancelOrder(@PathVariable Long id, 
                                                  @RequestParam(required = false) String reason) {
-        return ResponseEntity.ok(orderService.cancelOrder(id, reason));
+        return ResponseEntity.ok(conflictRetry.execute("order.cancel", () -> orderService.cancelOrder(id, reason)));
     }
     
     // === Admin/Staff endpoints ===
@@ -60,6 +80,25 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(pageable));
     }
     
+    // Danh sách rút gọn cho bảng quản trị (không tải items), chi tiết lấy qua /{id}
+    @GetMapping("/summary")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<Page<OrderSummaryDTO>> getOrderSummaries(
+            @RequestParam(required = false) String status,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        Order.OrderStatus orderStatus = status == null || status.isBlank()
+            ? null : Order.OrderStatus.valueOf(status.toUpperCase());
+        return ResponseEntity.ok(orderService.getOrderSummaries(orderStatus, pageable));
+    }
+    
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getAllOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(orderService.getAllOrdersByCursor(cursor, size));
+    }
+    
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<Page<OrderDTO>> getOrdersByStatus(
@@ -72,39 +111,47 @@ public class OrderController {
     @PostMapping("/{id}/confirm")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<OrderDTO> confirmOrder(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.confirmOrder(id));
+        return ResponseEntity.ok(conflictRetry.execute("order.confirm", () -> orderService.confirmOrder(id)));
     }
     
     @PostMapping("/{id}/process")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<OrderDTO> processOrder(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.processOrder(id));
+        return ResponseEntity.ok(conflictRetry.execute("order.process", () -> orderService.processOrder(id)));
     }
     
     @PostMapping("/{id}/ship")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<OrderDTO> shipOrder(@PathVariable Long id, 
                                                @RequestParam(required = false) String trackingNumber) {
-        return ResponseEntity.ok(orderService.shipOrder(id, trackingNumber));
+        return ResponseEntity.ok(conflictRetry.execute("order.ship", () -> orderService.shipOrder(id, trackingNumber)));
     }
     
     @PostMapping("/{id}/deliver")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<OrderDTO> deliverOrder(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.deliverOrder(id));
+        return ResponseEntity.ok(conflictRetry.execute("order.deliver", () -> orderService.deliverOrder(id)));
     }
     
     @PostMapping("/{id}/complete")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<OrderDTO> completeOrder(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.completeOrder(id));
+        return ResponseEntity.ok(conflictRetry.execute("order.complete", () -> orderService.completeOrder(id)));
+    }
+    
+    // Chuyển trạng thái nhiều đơn cùng lúc (SHIP kèm mã vận đơn theo từng đơn)
+    @PostMapping("/bulk-status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<BulkActionResultDTO> bulkUpdateStatus(
+            @Valid @RequestBody BulkOrderStatusRequest request) {
+        return ResponseEntity.ok(conflictRetry.execute("order.bulk-status", () -> orderService.bulkUpdateStatus(request)));
     }
     
     @PostMapping("/{id}/admin-cancel")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<OrderDTO> adminCancelOrder(@PathVariable Long id, 
                                                       @RequestParam String reason) {
-        return ResponseEntity.ok(orderService.adminCancelOrder(id, reason));
+        return ResponseEntity.ok(conflictRetry.execute("order.admin-cancel", () -> orderService.adminCancelOrder(id, reason)));
     }
     
     @PostMapping("/{id}/payment-status")
@@ -112,7 +159,8 @@ public class OrderController {
     public ResponseEntity<OrderDTO> updatePaymentStatus(@PathVariable Long id, 
                                                          @RequestParam String status,
                                                          @RequestParam(required = false) String transactionId) {
-        return ResponseEntity.ok(orderService.updatePaymentStatus(id, 
-            Order.PaymentStatus.valueOf(status.toUpperCase()), transactionId));
+        Order.PaymentStatus paymentStatus = Order.PaymentStatus.valueOf(status.toUpperCase());
+        return ResponseEntity.ok(conflictRetry.execute("order.payment-status",
+            () -> orderService.updatePaymentStatus(id, paymentStatus, transactionId)));
     }
 }
@@ -3,6 +3,7 @@ package com.petshop.controller;
 import com.petshop.dto.request.ProductRequest;
 import com.petshop.dto.response.ProductDTO;
 import com.petshop.service.ProductService;
+import com.petshop.service.support.ConflictRetry;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -23,6 +24,7 @@ import java.util.List;
 public class ProductController {
     
     private final ProductService productService;
+    private final ConflictRetry conflictRetry;
     
     // === Public endpoints ===
     
@@ -109,7 +111,8 @@ public class ProductController {
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, 
                                                      @Valid @RequestBody ProductRequest request) {
-        return ResponseEntity.ok(productService.updateProduct(id, request));
+        return ResponseEntity.ok(conflictRetry.execute("product.update",
+            () -> productService.updateProduct(id, request)));
     }
     
     @DeleteMapping("/{id}")
@@ -1,7 +1,9 @@
 package com.petshop.controller;
 
 import com.petshop.dto.request.ReviewRequest;
+import com.petshop.dto.response.AwaitingReviewDTO;
 import com.petshop.dto.response.ReviewDTO;
+import com.petshop.dto.response.ReviewSummaryDTO;
 import com.petshop.service.ReviewService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +16,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/reviews")
 @RequiredArgsConstructor
@@ -29,6 +34,11 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getProductReviews(productId, pageable));
     }
     
+    @GetMapping("/product/{productId}/summary")
+    public ResponseEntity<ReviewSummaryDTO> getProductReviewSummary(@PathVariable Long productId) {
+        return ResponseEntity.ok(reviewService.getProductReviewSummary(productId));
+    }
+    
     // Customer endpoints
     @PostMapping
     public ResponseEntity<ReviewDTO> createReview(@Valid @RequestBody ReviewRequest request) {
@@ -41,6 +51,11 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getMyReviews(pageable));
     }
     
+    @GetMapping("/awaiting")
+    public ResponseEntity<List<AwaitingReviewDTO>> getProductsAwaitingReview() {
+        return ResponseEntity.ok(reviewService.getProductsAwaitingReview());
+    }
+    
     // Admin endpoints
     @PostMapping("/{id}/reply")
     @PreAuthorize("hasRole('ADMIN')")
@@ -61,6 +76,12 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.showReview(id));
     }
     
+    @PostMapping("/reconcile-ratings")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> reconcileRatings() {
+        return ResponseEntity.ok(Map.of("products", reviewService.reconcileRatings()));
+    }
+    
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteReview(@PathVariable Long id) {
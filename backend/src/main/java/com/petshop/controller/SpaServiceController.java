@@ -1,7 +1,9 @@
 package com.petshop.controller;
 
 import com.petshop.dto.request.SpaServiceRequest;
+import com.petshop.dto.response.ServiceQuoteDTO;
 import com.petshop.dto.response.SpaServiceDTO;
+import com.petshop.entity.Pet;
 import com.petshop.service.SpaServiceService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +32,13 @@ public class SpaServiceController {
         return ResponseEntity.ok(spaServiceService.getServiceById(id));
     }
     
+    @GetMapping("/{id}/quote")
+    public ResponseEntity<ServiceQuoteDTO> getQuote(@PathVariable Long id,
+                                                    @RequestParam(required = false) Pet.PetType petType,
+                                                    @RequestParam(required = false) Double weight) {
+        return ResponseEntity.ok(spaServiceService.getQuote(id, petType, weight));
+    }
+    
     @GetMapping("/slug/{slug}")
     public ResponseEntity<SpaServiceDTO> getServiceBySlug(@PathVariable String slug) {
         return ResponseEntity.ok(spaServiceService.getServiceBySlug(slug));
@@ -0,0 +1,29 @@
+package com.petshop.controller;
+
+import com.petshop.dto.response.UserDTO;
+import com.petshop.entity.User;
+import com.petshop.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class UserController {
+    
+    private final UserService userService;
+    
+    @PutMapping("/{id}/active")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDTO> updateActive(@PathVariable Long id, @RequestParam boolean active) {
+        return ResponseEntity.ok(userService.updateActive(id, active));
+    }
+    
+    @PutMapping("/{id}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDTO> updateRole(@PathVariable Long id, @RequestParam User.Role role) {
+        return ResponseEntity.ok(userService.updateRole(id, role));
+    }
+}
@@ -3,6 +3,7 @@ package com.petshop.controller;
 import com.petshop.dto.request.VoucherRequest;
 import com.petshop.dto.response.VoucherDTO;
 import com.petshop.service.VoucherService;
+import com.petshop.service.support.ConflictRetry;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -23,6 +24,7 @@ import java.util.Map;
 public class VoucherController {
     
     private final VoucherService voucherService;
+    private final ConflictRetry conflictRetry;
     
     // Public/Customer endpoints
     @GetMapping("/active")
@@ -67,7 +69,8 @@ public class VoucherController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<VoucherDTO> updateVoucher(@PathVariable Long id, 
                                                      @Valid @RequestBody VoucherRequest request) {
-        return ResponseEntity.ok(voucherService.updateVoucher(id, request));
+        return ResponseEntity.ok(conflictRetry.execute("voucher.update",
+            () -> voucherService.updateVoucher(id, request)));
     }
     
     @DeleteMapping("/{id}")
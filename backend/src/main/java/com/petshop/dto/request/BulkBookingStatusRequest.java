@@ -0,0 +1,26 @@
+package com.petshop.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkBookingStatusRequest {
+    
+    @NotEmpty(message = "Booking IDs are required")
+    @Size(max = 500, message = "At most 500 bookings per request")
+    private List<Long> bookingIds;
+    
+    @NotNull(message = "Action is required")
+    private Action action;
+    
+    public enum Action {
+        CONFIRM,    // PENDING -> CONFIRMED
+        START,      // CONFIRMED -> IN_PROGRESS
+        COMPLETE,   // IN_PROGRESS -> COMPLETED
+        NO_SHOW     // CONFIRMED -> NO_SHOW
+    }
+}
@@ -0,0 +1,31 @@
+package com.petshop.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BulkOrderStatusRequest {
+    
+    @NotEmpty(message = "Order IDs are required")
+    @Size(max = 500, message = "At most 500 orders per request")
+    private List<Long> orderIds;
+    
+    @NotNull(message = "Action is required")
+    private Action action;
+    
+    // Mã vận đơn theo id đơn hàng (chỉ dùng cho SHIP)
+    private Map<Long, @Size(max = 100, message = "Tracking number is too long") String> trackingNumbers;
+    
+    public enum Action {
+        CONFIRM,    // PENDING -> CONFIRMED
+        PROCESS,    // CONFIRMED -> PROCESSING
+        SHIP,       // PROCESSING -> SHIPPING
+        DELIVER,    // SHIPPING -> DELIVERED
+        COMPLETE    // DELIVERED -> COMPLETED
+    }
+}
@@ -0,0 +1,18 @@
+package com.petshop.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CartMergeRequest {
+
+    // Giỏ hàng lưu ở trình duyệt trước khi đăng nhập
+    @NotEmpty(message = "Items are required")
+    @Size(max = 200, message = "Cannot merge more than 200 items at once")
+    @Valid
+    private List<CartItemRequest> items;
+}
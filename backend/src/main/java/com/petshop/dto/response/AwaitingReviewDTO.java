@@ -0,0 +1,22 @@
+package com.petshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Sản phẩm đã mua nhưng chưa đánh giá
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AwaitingReviewDTO {
+
+    private Long productId;
+    private String productName;
+    private String productSlug;
+    private String productImage;
+    private LocalDateTime purchasedAt;
+}
@@ -0,0 +1,68 @@
+package com.petshop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.petshop.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingCalendarDTO {
+
+    private LocalDate from;
+    private LocalDate to;
+    private Integer totalBookings;
+
+    // Lịch theo ngày
+    private List<CalendarDayDTO> days;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CalendarDayDTO {
+        private LocalDate date;
+        // Mỗi nhân viên một cột (staffId null = chưa phân công)
+        private List<StaffLaneDTO> lanes;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class StaffLaneDTO {
+        private Long staffId;
+        private String staffName;
+        private List<CalendarEntryDTO> bookings;
+    }
+
+    // Bản rút gọn của BookingDTO cho ô lịch
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CalendarEntryDTO {
+        private Long id;
+        private String code;
+        private LocalTime start;
+        private LocalTime end;
+        private Booking.BookingStatus status;
+        private Long serviceId;
+        private String serviceName;
+        private String petName;
+        private String customerName;
+        private String customerPhone;
+    }
+}
@@ -0,0 +1,45 @@
+package com.petshop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkActionResultDTO {
+    
+    private Integer requested;
+    private Integer succeeded;
+    private Integer failed;
+    
+    // Kết quả theo từng id
+    private List<ItemResult> results;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private Long id;
+        private boolean success;
+        private String status;
+        private String message;
+    }
+    
+    public static BulkActionResultDTO of(List<ItemResult> results) {
+        int succeeded = (int) results.stream().filter(ItemResult::isSuccess).count();
+        return BulkActionResultDTO.builder()
+            .requested(results.size())
+            .succeeded(succeeded)
+            .failed(results.size() - succeeded)
+            .results(results)
+            .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.petshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Thống kê xung đột ghi đồng thời theo từng thao tác
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConflictStatsDTO {
+
+    private String operation;
+    private Long calls;
+    // Số lần thử bị xung đột
+    private Long conflicts;
+    // Số lần gọi thành công sau khi thử lại
+    private Long recovered;
+    // Số lần gọi vẫn lỗi sau khi hết lượt thử
+    private Long exhausted;
+    // conflicts / calls
+    private Double conflictRate;
+}
@@ -0,0 +1,23 @@
+package com.petshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Trang theo con trỏ (keyset): không có tổng số bản ghi, chỉ có con trỏ trang sau
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+    private Integer size;
+    private Boolean hasNext;
+
+    // Truyền lại qua tham số cursor để lấy trang tiếp theo (null nếu hết)
+    private String nextCursor;
+}
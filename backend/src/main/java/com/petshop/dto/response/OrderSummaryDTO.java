@@ -0,0 +1,33 @@
+package com.petshop.dto.response;
+
+import com.petshop.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Bản rút gọn của OrderDTO cho bảng danh sách đơn hàng (không có items)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDTO {
+
+    private Long id;
+    private String orderCode;
+
+    // Khách hàng
+    private Long userId;
+    private String customerName;
+    private String customerPhone;
+
+    private Integer totalItems;
+    private BigDecimal totalAmount;
+    private Order.PaymentMethod paymentMethod;
+    private Order.PaymentStatus paymentStatus;
+    private Order.OrderStatus status;
+    private LocalDateTime createdAt;
+}
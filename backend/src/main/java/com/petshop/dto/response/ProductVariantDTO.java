@@ -21,4 +21,5 @@ public class ProductVariantDTO {
     private BigDecimal price;
     private int stock;
     private boolean active;
+    private Integer lowStockThreshold;
 }
@@ -0,0 +1,23 @@
+package com.petshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummaryDTO {
+
+    private Long productId;
+    private BigDecimal averageRating;
+    private Integer totalReviews;
+
+    // Số đánh giá theo số sao (1 -> 5)
+    private Map<Integer, Integer> distribution;
+}
@@ -0,0 +1,30 @@
+package com.petshop.dto.response;
+
+import com.petshop.entity.Pet;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceQuoteDTO {
+    
+    private Long serviceId;
+    private String serviceName;
+    private Integer duration;
+    
+    // Thông tin thú cưng dùng để báo giá
+    private Pet.PetType petType;
+    private Double weight;
+    
+    // Bậc giá được áp dụng
+    private Long pricingId;
+    private Double minWeight;
+    private Double maxWeight;
+    private BigDecimal price;
+}
@@ -0,0 +1,29 @@
+package com.petshop.dto.response;
+
+import com.petshop.service.support.LowStockIndex;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Thông báo biến thể vừa vượt ngưỡng tồn kho (gửi qua SSE)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAlertDTO {
+
+    private Long variantId;
+    private Long productId;
+    private String productName;
+    private String variantName;
+    private String sku;
+    private Integer stock;
+    private Integer lowStockThreshold;
+
+    private LowStockIndex.Level previousLevel;
+    private LowStockIndex.Level level;
+    private LocalDateTime at;
+}
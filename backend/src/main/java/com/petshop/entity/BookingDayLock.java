@@ -0,0 +1,21 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Một dòng cho mỗi ngày có lịch spa: khóa dòng này để các node xếp lịch cùng ngày lần lượt
+@Entity
+@Table(name = "booking_day_locks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingDayLock {
+
+    @Id
+    @Column(name = "booking_date")
+    private LocalDate bookingDate;
+}
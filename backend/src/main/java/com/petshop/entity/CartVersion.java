@@ -0,0 +1,23 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Version giỏ hàng của user: tăng mỗi lần giỏ được ghi xuống DB,
+// để node đang giữ bản cũ trong bộ nhớ biết mà nạp lại
+@Entity
+@Table(name = "cart_versions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartVersion {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,53 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Kết quả đã trả cho một Idempotency-Key: mỗi user + thao tác + key có đúng một dòng,
+// được ghi cùng transaction với đơn hàng / lịch hẹn mà nó tạo ra
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_idempotency_user_operation_key",
+        columnNames = {"user_id", "operation", "idempotency_key"})
+}, indexes = {
+    @Index(name = "idx_idempotency_expires", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Loại thao tác (order, booking)
+    @Column(nullable = false, length = 30)
+    private String operation;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 của body request
+    @Column(nullable = false, length = 32)
+    private byte[] fingerprint;
+
+    // Kết quả dạng JSON (null khi request đầu chưa xong)
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String response;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
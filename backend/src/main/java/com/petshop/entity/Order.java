@@ -11,7 +11,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_created", columnList = "created_at"),
+    @Index(name = "idx_orders_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_orders_status_payment_created", columnList = "status, payment_status, created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -53,6 +57,10 @@ public class Order {
     @Builder.Default
     private List<OrderItem> items = new ArrayList<>();
 
+    // Tổng số sản phẩm (lưu sẵn để danh sách đơn không phải tải items)
+    @Column(name = "total_items")
+    private Integer totalItems;
+
     // === Thanh toán ===
     // Tổng tiền hàng
     @Column(name = "subtotal", nullable = false, precision = 12, scale = 2)
@@ -123,6 +131,10 @@ public class Order {
     @Column(name = "cancelled_at")
     private LocalDateTime cancelledAt;
 
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -155,9 +167,4 @@ public class Order {
         FAILED,         // Thanh toán thất bại
         REFUNDED        // Đã hoàn tiền
     }
-
-    // Helper: Tính tổng số sản phẩm
-    public int getTotalItems() {
-        return items.stream().mapToInt(OrderItem::getQuantity).sum();
-    }
 }
@@ -0,0 +1,23 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Trạng thái số lượng đã bán của một đơn: đã cộng vào sold_count hay chưa (hoặc đã trừ lại).
+// Giúp cộng / trừ đúng một lần dù sự kiện được xử lý lại hay sự kiện hủy chạy trước sự kiện tạo
+@Entity
+@Table(name = "order_sold_counts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSoldCount {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(nullable = false)
+    private boolean counted;
+}
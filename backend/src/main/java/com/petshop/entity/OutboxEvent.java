@@ -0,0 +1,66 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Sự kiện nghiệp vụ chờ xử lý (transactional outbox)
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_status_next", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Tên lớp sự kiện (OrderCreated, StockChanged...)
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    // Id của đối tượng chính (đơn hàng, booking, sản phẩm...)
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    // Nội dung sự kiện dạng JSON
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    // Thời điểm được xử lý (lại); với PROCESSING là hạn giữ trước khi node khác nhận lại
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public enum Status {
+        PENDING,        // Chờ xử lý
+        PROCESSING,     // Đang được một node xử lý
+        DONE,           // Đã xử lý
+        FAILED          // Hết số lần thử
+    }
+}
@@ -58,6 +58,10 @@ public class Product {
     @Builder.Default
     private List<ProductImage> images = new ArrayList<>();
 
+    // Ảnh đại diện (lưu sẵn để không phải nạp danh sách ảnh)
+    @Column(name = "primary_image_url")
+    private String primaryImageUrl;
+
     // Biến thể sản phẩm (size, weight)
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
@@ -91,6 +95,11 @@ public class Product {
     @Builder.Default
     private boolean active = true;
 
+    // Khóa lạc quan: tăng sau mỗi lần cập nhật, ghi đè bản cũ sẽ bị từ chối
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -98,4 +107,17 @@ public class Product {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Helper: Cập nhật ảnh đại diện sau khi thay đổi danh sách ảnh
+    public void refreshPrimaryImageUrl() {
+        if (images == null || images.isEmpty()) {
+            primaryImageUrl = null;
+            return;
+        }
+        primaryImageUrl = images.stream()
+            .filter(ProductImage::isPrimary)
+            .findFirst()
+            .orElse(images.get(0))
+            .getImageUrl();
+    }
 }
@@ -0,0 +1,56 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+// Tổng hợp đánh giá của sản phẩm, được cộng/trừ theo từng thay đổi của review
+@Entity
+@Table(name = "product_rating_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductRatingStats {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    // Tổng số sao của các review đang hiển thị
+    @Column(name = "rating_sum", nullable = false)
+    @Builder.Default
+    private long ratingSum = 0;
+
+    @Column(name = "rating_count", nullable = false)
+    @Builder.Default
+    private int ratingCount = 0;
+
+    // Số review theo từng mức sao
+    @Column(name = "star1_count", nullable = false)
+    @Builder.Default
+    private int star1Count = 0;
+
+    @Column(name = "star2_count", nullable = false)
+    @Builder.Default
+    private int star2Count = 0;
+
+    @Column(name = "star3_count", nullable = false)
+    @Builder.Default
+    private int star3Count = 0;
+
+    @Column(name = "star4_count", nullable = false)
+    @Builder.Default
+    private int star4Count = 0;
+
+    @Column(name = "star5_count", nullable = false)
+    @Builder.Default
+    private int star5Count = 0;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
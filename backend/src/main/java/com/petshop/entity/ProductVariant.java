@@ -42,9 +42,18 @@ public class ProductVariant {
     @Builder.Default
     private int stock = 0;
 
+    // Ngưỡng cảnh báo sắp hết hàng
+    @Column(name = "low_stock_threshold", nullable = false, columnDefinition = "INT DEFAULT 10")
+    @Builder.Default
+    private int lowStockThreshold = 10;
+
     @Builder.Default
     private boolean active = true;
 
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,29 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Khóa thuê (lease) cho tác vụ định kỳ: chỉ node đang giữ lease mới được chạy
+@Entity
+@Table(name = "scheduler_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SchedulerLease {
+
+    // Tên tác vụ
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    // Node đang giữ lease
+    @Column(nullable = false, length = 100)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
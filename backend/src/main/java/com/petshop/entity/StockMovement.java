@@ -7,7 +7,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stock_movements")
+@Table(name = "stock_movements", indexes = {
+    @Index(name = "idx_movements_variant_created", columnList = "variant_id, created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,40 @@
+package com.petshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Chỉ mục "user đã mua sản phẩm": một dòng cho mỗi cặp (user, product) từ đơn hàng đã hoàn thành
+@Entity
+@Table(name = "user_purchases", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_purchase", columnNames = {"user_id", "product_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPurchase {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    // Lần mua gần nhất
+    @Column(name = "purchased_at", nullable = false)
+    private LocalDateTime purchasedAt;
+
+    // Đã viết đánh giá cho sản phẩm này chưa
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean reviewed = false;
+}
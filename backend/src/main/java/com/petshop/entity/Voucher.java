@@ -85,6 +85,10 @@ public class Voucher {
     @Builder.Default
     private List<Order> orders = new ArrayList<>();
 
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
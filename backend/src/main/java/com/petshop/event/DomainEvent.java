@@ -0,0 +1,48 @@
+package com.petshop.event;
+
+import com.petshop.entity.Order;
+
+import java.util.List;
+
+// Sự kiện nghiệp vụ: được ghi vào outbox trong cùng transaction với thay đổi
+// và được xử lý bất đồng bộ sau khi commit (ít nhất một lần)
+public sealed interface DomainEvent {
+
+    // Id của đối tượng chính, lưu cùng sự kiện để tra cứu
+    Long aggregateId();
+
+    record OrderCreated(Long orderId, Long userId) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return orderId;
+        }
+    }
+
+    record OrderStatusChanged(Long orderId, Order.OrderStatus from, Order.OrderStatus to) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return orderId;
+        }
+    }
+
+    record BookingCreated(Long bookingId, Long userId) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return bookingId;
+        }
+    }
+
+    record StockChanged(List<Long> variantIds) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return variantIds.size() == 1 ? variantIds.get(0) : null;
+        }
+    }
+
+    record ReviewChanged(Long productId) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return productId;
+        }
+    }
+}
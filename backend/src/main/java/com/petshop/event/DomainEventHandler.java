@@ -0,0 +1,9 @@
+package com.petshop.event;
+
+// Xử lý sự kiện nghiệp vụ. Mỗi handler nhận mọi sự kiện và tự bỏ qua loại không liên quan.
+// Tất cả handler của một sự kiện chạy chung một transaction với việc đánh dấu đã xử lý,
+// nên khi lỗi thì cả sự kiện được thử lại.
+public interface DomainEventHandler {
+
+    void handle(DomainEvent event);
+}
@@ -0,0 +1,60 @@
+package com.petshop.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Ghi sự kiện vào outbox trong transaction hiện tại; sự kiện chỉ được xử lý khi transaction commit
+@Component
+@RequiredArgsConstructor
+public class DomainEventPublisher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxDispatcher dispatcher;
+
+    public void publish(DomainEvent event) {
+        publishAll(List.of(event));
+    }
+
+    public void publishAll(List<? extends DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Domain events must be published inside a transaction");
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = events.stream()
+            .map(event -> new Object[] { event.getClass().getSimpleName(), event.aggregateId(), toJson(event), now, now })
+            .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (event_type, aggregate_id, payload, status, attempts, " +
+            "next_attempt_at, created_at) VALUES (?, ?, ?, 'PENDING', 0, ?, ?)", rows);
+
+        // Xử lý ngay sau commit thay vì chờ lượt quét kế tiếp
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wakeUp();
+            }
+        });
+    }
+
+    private String toJson(DomainEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + event, e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.petshop.event;
+
+import com.petshop.service.support.LowStockIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Cập nhật danh sách sắp hết / hết hàng sau mỗi thay đổi tồn kho
+@Component
+@RequiredArgsConstructor
+public class LowStockHandler implements DomainEventHandler {
+
+    private final LowStockIndex lowStockIndex;
+
+    @Override
+    public void handle(DomainEvent event) {
+        if (event instanceof DomainEvent.StockChanged changed) {
+            lowStockIndex.refresh(changed.variantIds());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.petshop.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petshop.entity.OutboxEvent;
+import com.petshop.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Lấy sự kiện đến hạn từ outbox và chạy các handler trên một thread pool giới hạn.
+// Lỗi được thử lại với thời gian chờ tăng dần, quá số lần thì chuyển FAILED.
+@Component
+@Slf4j
+public class OutboxDispatcher {
+
+    // Node nhận sự kiện giữ nó trong khoảng này; quá hạn thì node khác được nhận lại
+    private static final long CLAIM_TIMEOUT_MINUTES = 5;
+    private static final long MAX_BACKOFF_SECONDS = 600;
+
+    private final OutboxEventRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final List<DomainEventHandler> handlers;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Class<? extends DomainEvent>> eventTypes = new HashMap<>();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    @Value("${petshop.events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${petshop.events.max-attempts:10}")
+    private int maxAttempts;
+
+    @SuppressWarnings("unchecked")
+    public OutboxDispatcher(OutboxEventRepository outboxRepository, ObjectMapper objectMapper,
+                            List<DomainEventHandler> handlers, PlatformTransactionManager transactionManager,
+                            @Value("${petshop.events.worker-threads:4}") int workerThreads,
+                            @Value("${petshop.events.queue-capacity:1000}") int queueCapacity) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.handlers = handlers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "outbox-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        for (Class<?> type : DomainEvent.class.getPermittedSubclasses()) {
+            eventTypes.put(type.getSimpleName(), (Class<? extends DomainEvent>) type);
+        }
+    }
+
+    // Gọi sau khi có sự kiện mới được commit; gộp nhiều lần gọi liên tiếp thành một lượt quét
+    public void wakeUp() {
+        if (!wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                poll();
+            });
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi đầy: lượt quét định kỳ sẽ xử lý
+            wakeUpPending.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${petshop.events.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            List<OutboxEvent> claimed;
+            do {
+                claimed = transactionTemplate.execute(status -> claim());
+                if (claimed == null) {
+                    return;
+                }
+                claimed.forEach(this::submit);
+            } while (claimed.size() == batchSize && executor.getQueue().remainingCapacity() >= batchSize);
+        } catch (Exception e) {
+            log.error("Could not poll outbox events", e);
+        }
+    }
+
+    // Xóa sự kiện đã xử lý quá 7 ngày
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeProcessed() {
+        int deleted = outboxRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(7));
+        if (deleted > 0) {
+            log.info("Purged {} processed outbox events", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private List<OutboxEvent> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> due = outboxRepository.lockDue(now, batchSize);
+        if (!due.isEmpty()) {
+            outboxRepository.markProcessing(due.stream().map(OutboxEvent::getId).collect(Collectors.toList()),
+                now.plusMinutes(CLAIM_TIMEOUT_MINUTES));
+        }
+        return due;
+    }
+
+    private void submit(OutboxEvent row) {
+        try {
+            executor.execute(() -> process(row));
+        } catch (RejectedExecutionException e) {
+            outboxRepository.markRetry(row.getId(), row.getAttempts(), LocalDateTime.now(), row.getLastError());
+        }
+    }
+
+    private void process(OutboxEvent row) {
+        try {
+            Class<? extends DomainEvent> type = eventTypes.get(row.getEventType());
+            if (type == null) {
+                throw new IllegalStateException("Unknown event type " + row.getEventType());
+            }
+            DomainEvent event = objectMapper.readValue(row.getPayload(), type);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (DomainEventHandler handler : handlers) {
+                    handler.handle(event);
+                }
+                outboxRepository.markDone(row.getId(), LocalDateTime.now());
+            });
+        } catch (Exception e) {
+            int attempts = row.getAttempts() + 1;
+            String error = String.valueOf(e.getMessage());
+            if (attempts >= maxAttempts) {
+                log.error("Outbox event {} ({}) failed after {} attempts", row.getId(), row.getEventType(), attempts, e);
+                outboxRepository.markFailed(row.getId(), attempts, error);
+            } else {
+                long backoff = Math.min(1L << Math.min(attempts, 20), MAX_BACKOFF_SECONDS);
+                log.warn("Outbox event {} ({}) failed, retrying in {}s: {}", row.getId(), row.getEventType(), backoff, error);
+                outboxRepository.markRetry(row.getId(), attempts, LocalDateTime.now().plusSeconds(backoff), error);
+            }
+        }
+    }
+}
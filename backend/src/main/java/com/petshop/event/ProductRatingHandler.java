@@ -0,0 +1,20 @@
+package com.petshop.event;
+
+import com.petshop.repository.ProductRatingStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Chép điểm đánh giá từ bảng tổng hợp sang sản phẩm (averageRating, reviewCount)
+@Component
+@RequiredArgsConstructor
+public class ProductRatingHandler implements DomainEventHandler {
+
+    private final ProductRatingStatsRepository statsRepository;
+
+    @Override
+    public void handle(DomainEvent event) {
+        if (event instanceof DomainEvent.ReviewChanged changed) {
+            statsRepository.syncProduct(changed.productId());
+        }
+    }
+}
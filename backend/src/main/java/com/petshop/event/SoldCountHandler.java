@@ -0,0 +1,44 @@
+package com.petshop.event;
+
+import com.petshop.entity.Order;
+import com.petshop.repository.OrderSoldCountRepository;
+import com.petshop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Cộng / trừ số lượng đã bán của sản phẩm khi đơn được tạo / bị hủy.
+// Trạng thái của đơn trong order_sold_counts bảo đảm mỗi đơn chỉ được cộng và trừ một lần:
+// sự kiện chạy lại (quá hạn giữ, thử lại) không cộng thêm, hủy chạy trước tạo thì đơn không được cộng nữa
+@Component
+@RequiredArgsConstructor
+public class SoldCountHandler implements DomainEventHandler {
+
+    private final ProductRepository productRepository;
+    private final OrderSoldCountRepository orderSoldCountRepository;
+
+    @Override
+    public void handle(DomainEvent event) {
+        if (event instanceof DomainEvent.OrderCreated created) {
+            if (orderSoldCountRepository.insertIfAbsent(created.orderId(), true) == 1) {
+                productRepository.applySoldCount(created.orderId(), 1);
+            }
+        } else if (event instanceof DomainEvent.OrderStatusChanged changed
+            && changed.to() == Order.OrderStatus.CANCELLED) {
+            if (uncount(changed.orderId())) {
+                productRepository.applySoldCount(changed.orderId(), -1);
+            }
+        }
+    }
+
+    // Đơn đã cộng thì chuyển sang đã trừ; chưa có trạng thái thì ghi "không cộng" để sự kiện tạo đến sau bỏ qua.
+    // INSERT thua sự kiện tạo đang chạy song song (chờ nó commit rồi trùng khóa) thì kiểm tra lại
+    private boolean uncount(Long orderId) {
+        if (orderSoldCountRepository.uncount(orderId) == 1) {
+            return true;
+        }
+        if (orderSoldCountRepository.insertIfAbsent(orderId, false) == 1) {
+            return false;
+        }
+        return orderSoldCountRepository.uncount(orderId) == 1;
+    }
+}
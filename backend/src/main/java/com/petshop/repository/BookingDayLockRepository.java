@@ -0,0 +1,21 @@
+package com.petshop.repository;
+
+import com.petshop.entity.BookingDayLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface BookingDayLockRepository extends JpaRepository<BookingDayLock, LocalDate> {
+
+    // Tạo (nếu chưa có) và khóa dòng của ngày tới hết transaction hiện tại.
+    // ON DUPLICATE KEY UPDATE giữ khóa ghi trên dòng đã có nên không cần SELECT ... FOR UPDATE riêng
+    @Modifying
+    @Query(value = "INSERT INTO booking_day_locks (booking_date) VALUES (:date) " +
+                   "ON DUPLICATE KEY UPDATE booking_date = booking_date", nativeQuery = true)
+    int lock(@Param("date") LocalDate date);
+}
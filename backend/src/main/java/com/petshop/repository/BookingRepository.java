@@ -4,6 +4,7 @@ import com.petshop.entity.Booking;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,6 +13,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,9 +28,40 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     // Lịch hẹn trong ngày
     List<Booking> findByBookingDateAndStatusNotOrderByStartTimeAsc(LocalDate date, Booking.BookingStatus status);
     
-    // Lịch hẹn trong ngày (admin)
-    @Query("SELECT b FROM Booking b WHERE b.bookingDate = :date AND b.status != 'CANCELLED' ORDER BY b.startTime")
-    List<Booking> findByDate(@Param("date") LocalDate date);
+    // Lịch hẹn trong khoảng ngày (lịch tuần/tháng), nạp sẵn user/pet/service/staff
+    @Query("SELECT b FROM Booking b JOIN FETCH b.user JOIN FETCH b.pet JOIN FETCH b.service " +
+           "LEFT JOIN FETCH b.staff " +
+           "WHERE b.bookingDate BETWEEN :from AND :to AND b.status != 'CANCELLED' " +
+           "ORDER BY b.bookingDate, b.startTime")
+    List<Booking> findCalendarRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    // Khóa các booking theo thứ tự id trước khi chuyển trạng thái hàng loạt
+    @Query(value = "SELECT id FROM bookings WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockByIds(@Param("ids") Collection<Long> ids);
+    
+    // Trạng thái và khung giờ của nhiều booking: [id, status, bookingDate, startTime, endTime, staffId]
+    @Query("SELECT b.id, b.status, b.bookingDate, b.startTime, b.endTime, s.id " +
+           "FROM Booking b LEFT JOIN b.staff s WHERE b.id IN :ids")
+    List<Object[]> findStatusSnapshots(@Param("ids") Collection<Long> ids);
+    
+    // Chuyển trạng thái hàng loạt (chỉ các booking vẫn đang ở trạng thái :from)
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :to, b.updatedAt = :now " +
+           "WHERE b.id IN :ids AND b.status = :from")
+    int bulkUpdateStatus(@Param("ids") Collection<Long> ids,
+                         @Param("from") Booking.BookingStatus from,
+                         @Param("to") Booking.BookingStatus to,
+                         @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'CONFIRMED', b.confirmedAt = :now, b.updatedAt = :now " +
+           "WHERE b.id IN :ids AND b.status = 'PENDING'")
+    int bulkConfirm(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'COMPLETED', b.completedAt = :now, b.updatedAt = :now " +
+           "WHERE b.id IN :ids AND b.status = 'IN_PROGRESS'")
+    int bulkComplete(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
     
     // Kiểm tra khung giờ đã được đặt chưa
     @Query("SELECT COUNT(b) > 0 FROM Booking b WHERE b.bookingDate = :date " +
@@ -40,6 +73,24 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
                                      @Param("startTime") LocalTime startTime,
                                      @Param("endTime") LocalTime endTime);
     
+    // Khung giờ đã đặt trong ngày kèm nhân viên phục vụ: [staffId, startTime, endTime]
+    @Query("SELECT s.id, b.startTime, b.endTime FROM Booking b LEFT JOIN b.staff s " +
+           "WHERE b.bookingDate = :date AND b.status NOT IN ('CANCELLED', 'NO_SHOW') " +
+           "ORDER BY b.startTime")
+    List<Object[]> findActiveSlotsByDate(@Param("date") LocalDate date);
+    
+    // Số booking chồng giờ trên một ghế, đọc có khóa nên thấy cả booking vừa commit ở node khác.
+    // staffId null = ghế chung của shop (booking chưa gán nhân viên)
+    @Query(value = "SELECT COUNT(*) FROM bookings WHERE booking_date = :date " +
+                   "AND status NOT IN ('CANCELLED', 'NO_SHOW') AND start_time < :endTime AND end_time > :startTime " +
+                   "AND (staff_id = :staffId OR (:staffId IS NULL AND staff_id IS NULL)) " +
+                   "AND (:excludeId IS NULL OR id <> :excludeId) FOR SHARE", nativeQuery = true)
+    long countOverlappingLocked(@Param("date") LocalDate date,
+                                @Param("staffId") Long staffId,
+                                @Param("startTime") LocalTime startTime,
+                                @Param("endTime") LocalTime endTime,
+                                @Param("excludeId") Long excludeId);
+    
     // Đếm số lịch hẹn trong ngày
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.bookingDate = :date AND b.status NOT IN ('CANCELLED', 'NO_SHOW')")
     Long countByDate(@Param("date") LocalDate date);
@@ -67,4 +118,12 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     
     // Recent bookings for dashboard
     List<Booking> findTop5ByOrderByCreatedAtDesc();
+
+    // Phân trang keyset theo (createdAt, id) giảm dần, không COUNT
+    @Query("SELECT b FROM Booking b WHERE b.status = :status " +
+           "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Booking> findByStatusBefore(@Param("status") Booking.BookingStatus status,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id, Pageable pageable);
 }
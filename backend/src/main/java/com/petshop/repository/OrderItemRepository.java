@@ -2,8 +2,11 @@ package com.petshop.repository;
 
 import com.petshop.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,6 +14,15 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     List<OrderItem> findByOrderId(Long orderId);
     
+    // Tải items của cả trang đơn hàng trong một câu truy vấn
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItem> findByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+    
+    // Số lượng đã đặt theo đơn và biến thể: [orderId, variantId, productId, quantity]
+    @Query("SELECT oi.order.id, v.id, v.product.id, SUM(oi.quantity) FROM OrderItem oi JOIN oi.variant v " +
+           "WHERE oi.order.id IN :orderIds GROUP BY oi.order.id, v.id, v.product.id ORDER BY oi.order.id, v.id")
+    List<Object[]> sumQuantitiesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+    
     // Các sản phẩm chưa đánh giá của user
     List<OrderItem> findByOrderUserIdAndReviewedFalse(Long userId);
 }
@@ -4,12 +4,15 @@ import com.petshop.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,11 +21,77 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     Optional<Order> findByOrderCode(String orderCode);
     
-    // Đơn hàng của user
-    Page<Order> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
+    // Đơn hàng của user (kèm user, voucher trong cùng câu truy vấn)
+    @Query(value = "SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.voucher " +
+                   "WHERE o.user.id = :userId ORDER BY o.createdAt DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<Order> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId, Pageable pageable);
     
     // Lọc đơn hàng theo trạng thái
-    Page<Order> findByStatusOrderByCreatedAtDesc(Order.OrderStatus status, Pageable pageable);
+    @Query(value = "SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.voucher " +
+                   "WHERE o.status = :status ORDER BY o.createdAt DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<Order> findByStatusOrderByCreatedAtDesc(@Param("status") Order.OrderStatus status, Pageable pageable);
+    
+    // Danh sách rút gọn cho bảng quản trị, status null = tất cả
+    // row: [id, orderCode, userId, fullName, phone, totalItems, totalAmount, paymentMethod, paymentStatus, status, createdAt]
+    @Query(value = "SELECT o.id, o.orderCode, u.id, u.fullName, u.phone, o.totalItems, o.totalAmount, " +
+                   "o.paymentMethod, o.paymentStatus, o.status, o.createdAt " +
+                   "FROM Order o JOIN o.user u WHERE (:status IS NULL OR o.status = :status)",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE (:status IS NULL OR o.status = :status)")
+    Page<Object[]> findSummaries(@Param("status") Order.OrderStatus status, Pageable pageable);
+    
+    // Khóa các đơn hàng theo thứ tự id trước khi chuyển trạng thái hàng loạt
+    @Query(value = "SELECT id FROM orders WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockByIds(@Param("ids") Collection<Long> ids);
+    
+    // Trạng thái của nhiều đơn hàng: [id, status]
+    @Query("SELECT o.id, o.status FROM Order o WHERE o.id IN :ids")
+    List<Object[]> findStatusSnapshots(@Param("ids") Collection<Long> ids);
+    
+    // === Chuyển trạng thái hàng loạt (chỉ các đơn vẫn đang ở trạng thái trước đó) ===
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'CONFIRMED', o.confirmedAt = :now, o.updatedAt = :now, " +
+           "o.version = o.version + 1 WHERE o.id IN :ids AND o.status = 'PENDING'")
+    int bulkConfirm(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'PROCESSING', o.processingAt = :now, o.updatedAt = :now, " +
+           "o.version = o.version + 1 WHERE o.id IN :ids AND o.status = 'CONFIRMED'")
+    int bulkProcess(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'DELIVERED', o.deliveredAt = :now, o.updatedAt = :now, " +
+           "o.version = o.version + 1 WHERE o.id IN :ids AND o.status = 'SHIPPING'")
+    int bulkDeliver(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Đơn COD được đánh dấu đã thanh toán khi hoàn thành (paid_at phải gán trước payment_status)
+    @Modifying
+    @Query(value = "UPDATE orders SET " +
+                   "paid_at = CASE WHEN payment_method = 'COD' AND payment_status <> 'PAID' THEN :now ELSE paid_at END, " +
+                   "payment_status = CASE WHEN payment_method = 'COD' THEN 'PAID' ELSE payment_status END, " +
+                   "status = 'COMPLETED', completed_at = :now, updated_at = :now, version = version + 1 " +
+                   "WHERE id IN (:ids) AND status = 'DELIVERED'", nativeQuery = true)
+    int bulkComplete(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Đơn thanh toán online chưa trả tiền tạo trước :cutoff (dùng idx_orders_status_payment_created).
+    // SKIP LOCKED: bỏ qua các dòng đang bị transaction khác khóa thay vì chờ
+    @Query(value = "SELECT id FROM orders WHERE status = 'PENDING' AND payment_status IN ('PENDING', 'FAILED') " +
+                   "AND created_at < :cutoff AND payment_method <> 'COD' " +
+                   "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockExpiredUnpaid(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'CANCELLED', o.cancelReason = :reason, o.cancelledAt = :now, " +
+           "o.updatedAt = :now, o.version = o.version + 1 WHERE o.id IN :ids AND o.status = 'PENDING'")
+    int bulkCancel(@Param("ids") Collection<Long> ids, @Param("reason") String reason,
+                   @Param("now") LocalDateTime now);
+    
+    // Tất cả đơn hàng (sắp xếp theo Pageable)
+    @Query(value = "SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.voucher",
+           countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<Order> findAllWithUser(Pageable pageable);
     
     // Đếm đơn theo trạng thái
     Long countByStatus(Order.OrderStatus status);
@@ -66,4 +135,25 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT CASE WHEN COUNT(oi) > 0 THEN true ELSE false END FROM OrderItem oi " +
            "JOIN oi.order o WHERE o.user.id = :userId AND oi.variant.product.id = :productId AND o.status = 'COMPLETED'")
     boolean existsByUserIdAndProductId(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    // === Phân trang keyset theo (createdAt, id) giảm dần, không COUNT ===
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.voucher WHERE o.user.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserIdBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.voucher " +
+           "WHERE o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findAllBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // Điền tổng số sản phẩm cho đơn cũ
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE orders o SET o.total_items = (" +
+                   "SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi WHERE oi.order_id = o.id) " +
+                   "WHERE o.total_items IS NULL", nativeQuery = true)
+    int backfillTotalItems();
 }
@@ -0,0 +1,39 @@
+package com.petshop.repository;
+
+import com.petshop.entity.OrderSoldCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface OrderSoldCountRepository extends JpaRepository<OrderSoldCount, Long> {
+
+    // Ghi trạng thái đầu tiên của đơn; trả về 0 nếu đơn đã có trạng thái (đã tạo hoặc đã hủy trước đó).
+    // Dòng đang được transaction khác ghi thì chờ transaction đó xong
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO order_sold_counts (order_id, counted) VALUES (:orderId, :counted)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("orderId") Long orderId, @Param("counted") boolean counted);
+
+    // Chuyển đơn đã cộng sang đã trừ; trả về 0 nếu đơn chưa được cộng
+    @Modifying
+    @Query(value = "UPDATE order_sold_counts SET counted = FALSE WHERE order_id = :orderId AND counted = TRUE",
+           nativeQuery = true)
+    int uncount(@Param("orderId") Long orderId);
+
+    // Điền trạng thái cho đơn cũ. Đơn còn sự kiện tạo chưa xử lý thì để handler ghi;
+    // đơn hủy mà sự kiện hủy chưa xử lý vẫn tính là đã cộng để handler trừ
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO order_sold_counts (order_id, counted) " +
+                   "SELECT o.id, o.status <> 'CANCELLED' OR EXISTS (" +
+                   "SELECT 1 FROM outbox_events e WHERE e.event_type = 'OrderStatusChanged' " +
+                   "AND e.aggregate_id = o.id AND e.status <> 'DONE') " +
+                   "FROM orders o WHERE NOT EXISTS (" +
+                   "SELECT 1 FROM outbox_events e WHERE e.event_type = 'OrderCreated' " +
+                   "AND e.aggregate_id = o.id AND e.status <> 'DONE')", nativeQuery = true)
+    int backfillFromOrders();
+}
@@ -0,0 +1,59 @@
+package com.petshop.repository;
+
+import com.petshop.entity.ProductRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingStatsRepository extends JpaRepository<ProductRatingStats, Long> {
+
+    // Cộng dồn một thay đổi (sign = 1 hoặc -1) vào tổng hợp, tạo dòng nếu chưa có
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_stats " +
+                   "(product_id, rating_sum, rating_count, star1_count, star2_count, star3_count, star4_count, star5_count, updated_at) " +
+                   "VALUES (:productId, :sign * :rating, :sign, " +
+                   "IF(:rating = 1, :sign, 0), IF(:rating = 2, :sign, 0), IF(:rating = 3, :sign, 0), " +
+                   "IF(:rating = 4, :sign, 0), IF(:rating = 5, :sign, 0), NOW()) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "rating_sum = rating_sum + VALUES(rating_sum), " +
+                   "rating_count = rating_count + VALUES(rating_count), " +
+                   "star1_count = star1_count + VALUES(star1_count), " +
+                   "star2_count = star2_count + VALUES(star2_count), " +
+                   "star3_count = star3_count + VALUES(star3_count), " +
+                   "star4_count = star4_count + VALUES(star4_count), " +
+                   "star5_count = star5_count + VALUES(star5_count), " +
+                   "updated_at = VALUES(updated_at)", nativeQuery = true)
+    void applyDelta(@Param("productId") Long productId, @Param("rating") int rating, @Param("sign") int sign);
+
+    // Ghi averageRating / reviewCount của sản phẩm từ tổng hợp
+    @Modifying
+    @Query(value = "UPDATE products p JOIN product_rating_stats s ON s.product_id = p.id " +
+                   "SET p.average_rating = IF(s.rating_count > 0, ROUND(s.rating_sum / s.rating_count, 1), 0), " +
+                   "p.review_count = s.rating_count, p.version = p.version + 1 " +
+                   "WHERE p.id = :productId", nativeQuery = true)
+    void syncProduct(@Param("productId") Long productId);
+
+    // === Đối soát lại từ đầu ===
+
+    @Modifying
+    @Query(value = "DELETE FROM product_rating_stats", nativeQuery = true)
+    void deleteAllStats();
+
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_stats " +
+                   "(product_id, rating_sum, rating_count, star1_count, star2_count, star3_count, star4_count, star5_count, updated_at) " +
+                   "SELECT r.product_id, SUM(r.rating), COUNT(*), " +
+                   "SUM(r.rating = 1), SUM(r.rating = 2), SUM(r.rating = 3), SUM(r.rating = 4), SUM(r.rating = 5), NOW() " +
+                   "FROM reviews r WHERE r.product_id IS NOT NULL AND r.visible = true AND r.hidden = false " +
+                   "GROUP BY r.product_id", nativeQuery = true)
+    int rebuildAllStats();
+
+    @Modifying
+    @Query(value = "UPDATE products p LEFT JOIN product_rating_stats s ON s.product_id = p.id " +
+                   "SET p.average_rating = IF(s.rating_count > 0, ROUND(s.rating_sum / s.rating_count, 1), 0), " +
+                   "p.review_count = COALESCE(s.rating_count, 0), p.version = p.version + 1", nativeQuery = true)
+    void syncAllProducts();
+}
@@ -5,9 +5,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -60,4 +62,23 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     
     // Đếm sản phẩm active
     long countByActiveIsTrue();
+
+    // Điền ảnh đại diện cho các sản phẩm tạo trước khi có cột primary_image_url
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE products p SET p.primary_image_url = (" +
+           "SELECT i.image_url FROM product_images i WHERE i.product_id = p.id " +
+           "ORDER BY i.is_primary DESC, i.id ASC LIMIT 1) " +
+           "WHERE p.primary_image_url IS NULL", nativeQuery = true)
+    int backfillPrimaryImageUrls();
+
+    // Cộng (sign = 1) hoặc trừ (sign = -1) số lượng đã bán theo các sản phẩm của một đơn.
+    // Không chặn ở 0: SoldCountHandler chỉ trừ đơn đã được cộng, chặn sẽ che mất sai lệch
+    @Modifying
+    @Query(value = "UPDATE products p JOIN (" +
+                   "SELECT v.product_id, SUM(oi.quantity) AS quantity FROM order_items oi " +
+                   "JOIN product_variants v ON v.id = oi.variant_id " +
+                   "WHERE oi.order_id = :orderId GROUP BY v.product_id) t ON t.product_id = p.id " +
+                   "SET p.sold_count = p.sold_count + :sign * t.quantity, p.version = p.version + 1", nativeQuery = true)
+    int applySoldCount(@Param("orderId") Long orderId, @Param("sign") int sign);
 }
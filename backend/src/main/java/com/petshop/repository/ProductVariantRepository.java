@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,14 +19,6 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     
     boolean existsBySku(String sku);
     
-    // Sản phẩm sắp hết hàng
-    @Query("SELECT v FROM ProductVariant v WHERE v.active = true AND v.stock > 0 AND v.stock <= :threshold")
-    List<ProductVariant> findLowStock(@Param("threshold") int threshold);
-    
-    // Sản phẩm hết hàng
-    @Query("SELECT v FROM ProductVariant v WHERE v.active = true AND v.stock <= 0")
-    List<ProductVariant> findOutOfStock();
-    
     // Đếm số sản phẩm sắp hết
     @Query("SELECT COUNT(v) FROM ProductVariant v WHERE v.active = true AND v.stock > 0 AND v.stock <= :threshold")
     long countLowStock(@Param("threshold") int threshold);
@@ -33,4 +26,27 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     // Đếm số sản phẩm hết hàng
     @Query("SELECT COUNT(v) FROM ProductVariant v WHERE v.active = true AND v.stock <= 0")
     long countOutOfStock();
+
+    // Dữ liệu hiển thị giỏ hàng trong một truy vấn
+    // row: [variantId, variantName, price, stock, active, productId, productName, slug, salePrice, primaryImageUrl]
+    @Query("SELECT v.id, v.name, v.price, v.stock, v.active, p.id, p.name, p.slug, p.salePrice, p.primaryImageUrl " +
+           "FROM ProductVariant v JOIN v.product p WHERE v.id IN :variantIds")
+    List<Object[]> findCartSnapshots(@Param("variantIds") Collection<Long> variantIds);
+
+    // Tồn kho và ngưỡng cảnh báo
+    // row: [variantId, productId, productName, variantName, sku, price, stock, threshold, active]
+    @Query("SELECT v.id, p.id, p.name, v.name, v.sku, v.price, v.stock, v.lowStockThreshold, v.active " +
+           "FROM ProductVariant v JOIN v.product p WHERE v.id IN :variantIds")
+    List<Object[]> findStockLevels(@Param("variantIds") Collection<Long> variantIds);
+
+    // Như findStockLevels, cho mọi biến thể đang bán có tồn kho <= ngưỡng
+    @Query("SELECT v.id, p.id, p.name, v.name, v.sku, v.price, v.stock, v.lowStockThreshold, v.active " +
+           "FROM ProductVariant v JOIN v.product p WHERE v.active = true AND v.stock <= v.lowStockThreshold")
+    List<Object[]> findStockLevelsBelowThreshold();
+
+    // Khóa và đọc tồn kho theo thứ tự id
+    // row: [variantId, stock]
+    @Query(value = "SELECT id, stock FROM product_variants WHERE id IN (:variantIds) ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockStocks(@Param("variantIds") Collection<Long> variantIds);
 }
@@ -4,21 +4,38 @@ import com.petshop.entity.Review;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     
-    // Đánh giá sản phẩm (công khai)
+    // Đánh giá sản phẩm (công khai), nạp kèm user và sản phẩm
+    @Query(value = "SELECT r FROM Review r JOIN FETCH r.user JOIN FETCH r.product p " +
+                   "WHERE p.id = :productId AND r.visible = :visible AND r.hidden = :hidden " +
+                   "ORDER BY r.createdAt DESC",
+           countQuery = "SELECT COUNT(r) FROM Review r " +
+                        "WHERE r.product.id = :productId AND r.visible = :visible AND r.hidden = :hidden")
     Page<Review> findByProductIdAndVisibleAndHiddenOrderByCreatedAtDesc(
-            Long productId, Boolean visible, Boolean hidden, Pageable pageable);
+            @Param("productId") Long productId, @Param("visible") Boolean visible,
+            @Param("hidden") Boolean hidden, Pageable pageable);
     
-    // Đánh giá của user
-    Page<Review> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
+    // Đánh giá của user, nạp kèm user và sản phẩm
+    @Query(value = "SELECT r FROM Review r JOIN FETCH r.user u LEFT JOIN FETCH r.product " +
+                   "WHERE u.id = :userId ORDER BY r.createdAt DESC",
+           countQuery = "SELECT COUNT(r) FROM Review r WHERE r.user.id = :userId")
+    Page<Review> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId, Pageable pageable);
+    
+    // Ảnh của nhiều review trong một truy vấn
+    // row: [reviewId, imageUrl]
+    @Query("SELECT r.id, i FROM Review r JOIN r.images i WHERE r.id IN :reviewIds")
+    List<Object[]> findImagesByReviewIds(@Param("reviewIds") Collection<Long> reviewIds);
     
     // Tính rating trung bình của sản phẩm
     @Query("SELECT COALESCE(AVG(r.rating), 0) FROM Review r WHERE r.product.id = :productId AND r.visible = true AND r.hidden = false")
@@ -28,6 +45,15 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId AND r.visible = true AND r.hidden = false")
     Long countByProduct(@Param("productId") Long productId);
     
+    // Có review nào được tính vào điểm sản phẩm không
+    @Query("SELECT COUNT(r) > 0 FROM Review r WHERE r.product IS NOT NULL AND r.visible = true AND r.hidden = false")
+    boolean existsRated();
+    
+    // Ẩn/hiện review, trả về 0 nếu trạng thái đã như vậy (tránh cộng/trừ điểm hai lần)
+    @Modifying
+    @Query("UPDATE Review r SET r.hidden = :hidden WHERE r.id = :id AND r.hidden <> :hidden")
+    int updateHidden(@Param("id") Long id, @Param("hidden") Boolean hidden);
+    
     // Kiểm tra user đã đánh giá sản phẩm/booking chưa
     boolean existsByUserIdAndProductId(Long userId, Long productId);
     boolean existsByUserIdAndBookingId(Long userId, Long bookingId);
@@ -0,0 +1,35 @@
+package com.petshop.repository;
+
+import com.petshop.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    // Giành lease nếu chưa có / đã hết hạn, gia hạn nếu đang giữ; không đổi gì nếu node khác giữ.
+    // Dùng đồng hồ của DB để các node không lệch giờ nhau. MySQL gán SET từ trái sang phải
+    // nên điều kiện của expires_at thấy owner đã được cập nhật.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO scheduler_leases (name, owner, expires_at) " +
+                   "VALUES (:name, :owner, DATE_ADD(NOW(), INTERVAL :seconds SECOND)) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "owner = IF(expires_at < NOW() OR owner = VALUES(owner), VALUES(owner), owner), " +
+                   "expires_at = IF(owner = VALUES(owner), VALUES(expires_at), expires_at)", nativeQuery = true)
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("seconds") long seconds);
+
+    @Query(value = "SELECT COUNT(*) FROM scheduler_leases " +
+                   "WHERE name = :name AND owner = :owner AND expires_at > NOW()", nativeQuery = true)
+    long countHeld(@Param("name") String name, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE scheduler_leases SET expires_at = NOW() WHERE name = :name AND owner = :owner",
+           nativeQuery = true)
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -2,6 +2,7 @@ package com.petshop.repository;
 
 import com.petshop.entity.SpaService;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +16,9 @@ public interface SpaServiceRepository extends JpaRepository<SpaService, Long> {
     List<SpaService> findByActiveOrderByDisplayOrderAsc(Boolean active);
     
     boolean existsBySlug(String slug);
+    
+    // Toàn bộ dịch vụ kèm bảng giá trong một truy vấn (dựng ServicePriceIndex)
+    @Query("SELECT s.id, s.name, s.duration, s.active, p.id, p.petType, p.minWeight, p.maxWeight, p.price " +
+           "FROM SpaService s LEFT JOIN s.pricingList p ORDER BY s.id, p.minWeight")
+    List<Object[]> findAllWithPricing();
 }
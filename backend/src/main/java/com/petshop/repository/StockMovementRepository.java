@@ -4,12 +4,25 @@ import com.petshop.entity.StockMovement;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
     
     Page<StockMovement> findByVariantIdOrderByCreatedAtDesc(Long variantId, Pageable pageable);
     
     Page<StockMovement> findByMovementTypeOrderByCreatedAtDesc(StockMovement.MovementType type, Pageable pageable);
+
+    // Phân trang keyset theo (createdAt, id) giảm dần, không COUNT
+    @Query("SELECT m FROM StockMovement m WHERE m.variant.id = :variantId " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<StockMovement> findByVariantIdBefore(@Param("variantId") Long variantId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,69 @@
+package com.petshop.repository;
+
+import com.petshop.entity.UserPurchase;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserPurchaseRepository extends JpaRepository<UserPurchase, Long> {
+
+    boolean existsByUserIdAndProductId(Long userId, Long productId);
+
+    // Ghi các sản phẩm của đơn hàng vừa hoàn thành
+    @Modifying
+    @Query(value = "INSERT INTO user_purchases (user_id, product_id, purchased_at, reviewed) " +
+                   "SELECT DISTINCT o.user_id, v.product_id, NOW(), false FROM order_items oi " +
+                   "JOIN orders o ON o.id = oi.order_id " +
+                   "JOIN product_variants v ON v.id = oi.variant_id " +
+                   "WHERE o.id = :orderId " +
+                   "ON DUPLICATE KEY UPDATE purchased_at = VALUES(purchased_at)", nativeQuery = true)
+    int recordOrder(@Param("orderId") Long orderId);
+
+    // Như recordOrder, cho nhiều đơn cùng lúc
+    @Modifying
+    @Query(value = "INSERT INTO user_purchases (user_id, product_id, purchased_at, reviewed) " +
+                   "SELECT DISTINCT o.user_id, v.product_id, NOW(), false FROM order_items oi " +
+                   "JOIN orders o ON o.id = oi.order_id " +
+                   "JOIN product_variants v ON v.id = oi.variant_id " +
+                   "WHERE o.id IN (:orderIds) " +
+                   "ON DUPLICATE KEY UPDATE purchased_at = VALUES(purchased_at)", nativeQuery = true)
+    int recordOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    // Đánh dấu đã đánh giá, 0 nếu chưa mua hoặc đã đánh giá rồi
+    @Modifying
+    @Query("UPDATE UserPurchase up SET up.reviewed = true " +
+           "WHERE up.user.id = :userId AND up.product.id = :productId AND up.reviewed = false")
+    int markReviewed(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    @Modifying
+    @Query("UPDATE UserPurchase up SET up.reviewed = false " +
+           "WHERE up.user.id = :userId AND up.product.id = :productId")
+    int markUnreviewed(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    // Sản phẩm đã mua nhưng chưa đánh giá
+    // row: [productId, name, slug, primaryImageUrl, purchasedAt]
+    @Query("SELECT p.id, p.name, p.slug, p.primaryImageUrl, up.purchasedAt FROM UserPurchase up " +
+           "JOIN up.product p WHERE up.user.id = :userId AND up.reviewed = false " +
+           "ORDER BY up.purchasedAt DESC")
+    List<Object[]> findAwaitingReview(@Param("userId") Long userId);
+
+    // Dựng lại từ các đơn hàng đã hoàn thành (lần đầu triển khai)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_purchases (user_id, product_id, purchased_at, reviewed) " +
+                   "SELECT o.user_id, v.product_id, MAX(COALESCE(o.completed_at, o.created_at)), " +
+                   "EXISTS (SELECT 1 FROM reviews r WHERE r.user_id = o.user_id AND r.product_id = v.product_id) " +
+                   "FROM order_items oi " +
+                   "JOIN orders o ON o.id = oi.order_id " +
+                   "JOIN product_variants v ON v.id = oi.variant_id " +
+                   "WHERE o.status = 'COMPLETED' " +
+                   "GROUP BY o.user_id, v.product_id", nativeQuery = true)
+    int backfillFromCompletedOrders();
+}
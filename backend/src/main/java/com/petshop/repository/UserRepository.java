@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,6 +19,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     boolean existsByPhone(String phone);
     
+    // Nhân viên đang làm việc (dùng để xếp lịch spa)
+    @Query("SELECT u.id FROM User u WHERE u.role = 'STAFF' AND u.active = true ORDER BY u.id")
+    List<Long> findActiveStaffIds();
+    
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = 'CUSTOMER'")
     long countCustomers();
     
@@ -0,0 +1,32 @@
+package com.petshop.repository;
+
+import com.petshop.entity.VoucherRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface VoucherRedemptionRepository extends JpaRepository<VoucherRedemption, Long> {
+
+    // Đọc có khóa để thấy cả lượt dùng vừa commit bởi transaction khác
+    @Query(value = "SELECT COUNT(*) FROM voucher_redemptions " +
+                   "WHERE voucher_id = :voucherId AND user_id = :userId LOCK IN SHARE MODE", nativeQuery = true)
+    long countByVoucherIdAndUserIdLocked(@Param("voucherId") Long voucherId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM VoucherRedemption r WHERE r.order.id = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
+
+    // Số lượt đang giữ theo voucher của nhiều đơn: [voucherId, count]
+    @Query("SELECT r.voucher.id, COUNT(r) FROM VoucherRedemption r WHERE r.order.id IN :orderIds GROUP BY r.voucher.id")
+    List<Object[]> countByVoucherForOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("DELETE FROM VoucherRedemption r WHERE r.order.id IN :orderIds")
+    int deleteByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -4,6 +4,7 @@ import com.petshop.entity.Voucher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,4 +28,27 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
     Page<Voucher> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
     boolean existsByCode(String code);
+    
+    // Lượt đã dùng hiện tại
+    // row: [usedCount, version]
+    @Query("SELECT v.usedCount, v.version FROM Voucher v WHERE v.id = :id")
+    List<Object[]> findUsage(@Param("id") Long id);
+    
+    // Giữ một lượt dùng, 0 nếu đã hết lượt
+    @Modifying
+    @Query("UPDATE Voucher v SET v.usedCount = v.usedCount + 1, v.version = v.version + 1 " +
+           "WHERE v.id = :id AND (v.usageLimit IS NULL OR v.usedCount < v.usageLimit)")
+    int claimUsage(@Param("id") Long id);
+    
+    // Trả lại một lượt dùng khi đơn hàng bị hủy
+    @Modifying
+    @Query("UPDATE Voucher v SET v.usedCount = v.usedCount - 1, v.version = v.version + 1 " +
+           "WHERE v.id = :id AND v.usedCount > 0")
+    int releaseUsage(@Param("id") Long id);
+    
+    // Trả lại nhiều lượt dùng cùng lúc
+    @Modifying
+    @Query("UPDATE Voucher v SET v.usedCount = CASE WHEN v.usedCount > :count THEN v.usedCount - :count ELSE 0 END, " +
+           "v.version = v.version + 1 WHERE v.id = :id")
+    int releaseUsages(@Param("id") Long id, @Param("count") int count);
 }
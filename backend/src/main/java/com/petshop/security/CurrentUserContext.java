@@ -0,0 +1,58 @@
+package com.petshop.security;
+
+import com.petshop.entity.User;
+import com.petshop.exception.BadRequestException;
+import com.petshop.exception.ResourceNotFoundException;
+import com.petshop.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// Người dùng hiện tại của request. Id lấy thẳng từ principal (không truy vấn),
+// entity User chỉ được nạp một lần khi có service cần đến.
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class CurrentUserContext {
+
+    private final UserRepository userRepository;
+
+    private User user;
+
+    public UserPrincipal getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            throw new BadRequestException("Chưa đăng nhập");
+        }
+        return principal;
+    }
+
+    public Long getUserId() {
+        return getPrincipal().getId();
+    }
+
+    public User.Role getRole() {
+        return getPrincipal().getRole();
+    }
+
+    public User getUser() {
+        Long userId = getUserId();
+        if (user == null || !user.getId().equals(userId)) {
+            user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        }
+        return user;
+    }
+
+    // Tham chiếu dùng để gán khóa ngoại, không phát sinh truy vấn nếu chưa nạp User
+    public User getUserReference() {
+        Long userId = getUserId();
+        if (user != null && user.getId().equals(userId)) {
+            return user;
+        }
+        return userRepository.getReferenceById(userId);
+    }
+}
@@ -24,10 +24,19 @@ public class UserPrincipal implements UserDetails {
     private Collection<? extends GrantedAuthority> authorities;
 
     public static UserPrincipal create(User user) {
+        return create(user, user.getPassword());
+    }
+
+    // Principal cho xác thực JWT (được cache), không cần giữ mật khẩu
+    public static UserPrincipal createWithoutPassword(User user) {
+        return create(user, null);
+    }
+
+    private static UserPrincipal create(User user, String password) {
         return UserPrincipal.builder()
                 .id(user.getId())
                 .email(user.getEmail())
-                .password(user.getPassword())
+                .password(password)
                 .role(user.getRole())
                 .active(user.isActive())
                 .authorities(Collections.singletonList(
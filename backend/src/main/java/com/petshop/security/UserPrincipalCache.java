@@ -0,0 +1,73 @@
+package com.petshop.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Cache ngắn hạn cho UserPrincipal theo userId, để request đã xác thực
+// không phải SELECT users mỗi lần. Gọi evict khi user bị khóa hoặc đổi quyền.
+@Component
+@RequiredArgsConstructor
+public class UserPrincipalCache {
+
+    private final CustomUserDetailsService customUserDetailsService;
+
+    @Value("${jwt.principal-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${jwt.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<Long, CachedPrincipal> entries = new ConcurrentHashMap<>();
+
+    public UserPrincipal get(Long userId) {
+        long now = System.nanoTime();
+        CachedPrincipal cached = entries.get(userId);
+        if (cached != null && cached.expiresAt - now > 0) {
+            return cached.principal;
+        }
+
+        UserPrincipal principal = customUserDetailsService.loadUserById(userId);
+
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+            if (entries.size() >= maxSize) {
+                entries.clear();
+            }
+        }
+        entries.put(userId, new CachedPrincipal(principal, now + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        return principal;
+    }
+
+    public void evict(Long userId) {
+        entries.remove(userId);
+    }
+
+    // Xóa sau khi transaction đổi trạng thái / quyền commit,
+    // để request chen giữa không nạp lại bản cũ vào cache
+    public void evictAfterCommit(Long userId) {
+        evict(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+            }
+        });
+    }
+
+    public void evictAll() {
+        entries.clear();
+    }
+
+    private record CachedPrincipal(UserPrincipal principal, long expiresAt) {
+    }
+}
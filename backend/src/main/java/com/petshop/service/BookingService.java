@@ -1,7 +1,11 @@
 package com.petshop.service;
 
 import com.petshop.dto.request.BookingRequest;
+import com.petshop.dto.request.BulkBookingStatusRequest;
+import com.petshop.dto.response.BookingCalendarDTO;
 import com.petshop.dto.response.BookingDTO;
+import com.petshop.dto.response.BulkActionResultDTO;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.entity.Booking;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -18,6 +22,9 @@ public interface BookingService {
     // Kiểm tra khung giờ trống
     boolean isTimeSlotAvailable(LocalDate date, LocalTime startTime, LocalTime endTime);
     
+    // Số nhân viên còn trống trong khung giờ
+    int getRemainingCapacity(LocalDate date, LocalTime startTime, LocalTime endTime);
+    
     // Lấy thông tin booking
     BookingDTO getBookingById(Long id);
     BookingDTO getBookingByCode(String bookingCode);
@@ -32,9 +39,13 @@ public interface BookingService {
     // Lấy lịch hẹn trong ngày
     List<BookingDTO> getBookingsByDate(LocalDate date);
     
+    // Lịch tuần/tháng, nhóm theo ngày và nhân viên
+    BookingCalendarDTO getCalendar(LocalDate from, LocalDate to);
+    
     // Lấy tất cả booking
     Page<BookingDTO> getAllBookings(Pageable pageable);
     Page<BookingDTO> getBookingsByStatus(Booking.BookingStatus status, Pageable pageable);
+    CursorPageDTO<BookingDTO> getBookingsByStatusByCursor(Booking.BookingStatus status, String cursor, int size);
     
     // Xác nhận/Hoàn thành/Hủy
     BookingDTO confirmBooking(Long id);
@@ -43,6 +54,9 @@ public interface BookingService {
     BookingDTO adminCancelBooking(Long id, String reason);
     BookingDTO markNoShow(Long id);
     
+    // Chuyển trạng thái nhiều booking cùng lúc (quầy lễ tân)
+    BulkActionResultDTO bulkUpdateStatus(BulkBookingStatusRequest request);
+    
     // Assign nhân viên
     BookingDTO assignStaff(Long id, Long staffId);
 }
@@ -1,6 +1,7 @@
 package com.petshop.service;
 
 import com.petshop.dto.request.CartItemRequest;
+import com.petshop.dto.request.CartMergeRequest;
 import com.petshop.dto.response.CartDTO;
 import com.petshop.dto.response.CartItemDTO;
 
@@ -12,6 +13,9 @@ public interface CartService {
     // Thêm vào giỏ
     CartItemDTO addToCart(CartItemRequest request);
     
+    // Gộp giỏ hàng của khách sau khi đăng nhập
+    CartDTO mergeCart(CartMergeRequest request);
+    
     // Cập nhật số lượng
     CartItemDTO updateCartItem(Long itemId, Integer quantity);
     
@@ -1,6 +1,7 @@
 package com.petshop.service;
 
 import com.petshop.dto.request.StockMovementRequest;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.dto.response.ProductVariantDTO;
 import com.petshop.dto.response.StockMovementDTO;
 import org.springframework.data.domain.Page;
@@ -18,10 +19,14 @@ public interface InventoryService {
     
     // Lịch sử nhập/xuất kho
     Page<StockMovementDTO> getStockMovements(Long variantId, Pageable pageable);
+    CursorPageDTO<StockMovementDTO> getStockMovementsByCursor(Long variantId, String cursor, int size);
     
     // Sản phẩm sắp hết hàng
     List<ProductVariantDTO> getLowStockProducts();
     
     // Sản phẩm hết hàng
     List<ProductVariantDTO> getOutOfStockProducts();
+    
+    // Ngưỡng cảnh báo sắp hết hàng của biến thể
+    ProductVariantDTO updateLowStockThreshold(Long variantId, int threshold);
 }
@@ -1,7 +1,11 @@
 package com.petshop.service;
 
+import com.petshop.dto.request.BulkOrderStatusRequest;
 import com.petshop.dto.request.OrderRequest;
+import com.petshop.dto.response.BulkActionResultDTO;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.dto.response.OrderDTO;
+import com.petshop.dto.response.OrderSummaryDTO;
 import com.petshop.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,11 +17,14 @@ public interface OrderService {
     OrderDTO getOrderById(Long id);
     OrderDTO getOrderByCode(String orderCode);
     Page<OrderDTO> getMyOrders(Pageable pageable);
+    CursorPageDTO<OrderDTO> getMyOrdersByCursor(String cursor, int size);
     OrderDTO cancelOrder(Long id, String reason);
     
     // === Admin/Staff ===
     Page<OrderDTO> getAllOrders(Pageable pageable);
+    CursorPageDTO<OrderDTO> getAllOrdersByCursor(String cursor, int size);
     Page<OrderDTO> getOrdersByStatus(Order.OrderStatus status, Pageable pageable);
+    Page<OrderSummaryDTO> getOrderSummaries(Order.OrderStatus status, Pageable pageable);
     
     // Cập nhật trạng thái đơn hàng
     OrderDTO confirmOrder(Long id);
@@ -26,6 +33,7 @@ public interface OrderService {
     OrderDTO deliverOrder(Long id);
     OrderDTO completeOrder(Long id);
     OrderDTO adminCancelOrder(Long id, String reason);
+    BulkActionResultDTO bulkUpdateStatus(BulkOrderStatusRequest request);
     
     // Cập nhật thanh toán
     OrderDTO updatePaymentStatus(Long id, Order.PaymentStatus status, String transactionId);
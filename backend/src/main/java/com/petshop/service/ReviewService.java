@@ -1,10 +1,14 @@
 package com.petshop.service;
 
 import com.petshop.dto.request.ReviewRequest;
+import com.petshop.dto.response.AwaitingReviewDTO;
 import com.petshop.dto.response.ReviewDTO;
+import com.petshop.dto.response.ReviewSummaryDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface ReviewService {
     
     // Tạo đánh giá
@@ -13,9 +17,15 @@ public interface ReviewService {
     // Lấy đánh giá theo sản phẩm
     Page<ReviewDTO> getProductReviews(Long productId, Pageable pageable);
     
+    // Tổng hợp số sao của sản phẩm
+    ReviewSummaryDTO getProductReviewSummary(Long productId);
+    
     // Lấy đánh giá của user
     Page<ReviewDTO> getMyReviews(Pageable pageable);
     
+    // Sản phẩm đã mua nhưng chưa đánh giá
+    List<AwaitingReviewDTO> getProductsAwaitingReview();
+    
     // Phản hồi đánh giá (admin)
     ReviewDTO replyToReview(Long id, String reply);
     
@@ -25,4 +35,7 @@ public interface ReviewService {
     
     // Xóa đánh giá
     void deleteReview(Long id);
+    
+    // Tính lại điểm đánh giá của tất cả sản phẩm (admin)
+    int reconcileRatings();
 }
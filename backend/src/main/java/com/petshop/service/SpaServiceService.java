@@ -1,7 +1,9 @@
 package com.petshop.service;
 
 import com.petshop.dto.request.SpaServiceRequest;
+import com.petshop.dto.response.ServiceQuoteDTO;
 import com.petshop.dto.response.SpaServiceDTO;
+import com.petshop.entity.Pet;
 
 import java.util.List;
 
@@ -17,4 +19,7 @@ public interface SpaServiceService {
     // Danh sách dịch vụ
     List<SpaServiceDTO> getAllServices();
     List<SpaServiceDTO> getActiveServices();
+    
+    // Báo giá theo loại thú cưng và cân nặng
+    ServiceQuoteDTO getQuote(Long serviceId, Pet.PetType petType, Double weight);
 }
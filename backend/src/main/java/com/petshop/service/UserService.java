@@ -0,0 +1,13 @@
+package com.petshop.service;
+
+import com.petshop.dto.response.UserDTO;
+import com.petshop.entity.User;
+
+public interface UserService {
+    
+    // Khóa / mở khóa tài khoản
+    UserDTO updateActive(Long id, boolean active);
+    
+    // Đổi quyền tài khoản
+    UserDTO updateRole(Long id, User.Role role);
+}
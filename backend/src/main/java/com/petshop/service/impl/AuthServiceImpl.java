@@ -8,6 +8,7 @@ import com.petshop.entity.User;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.UserRepository;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.security.JwtTokenProvider;
 import com.petshop.security.UserPrincipal;
 import com.petshop.service.AuthService;
@@ -28,6 +29,7 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
+    private final CurrentUserContext currentUser;
     
     @Override
     public JwtResponse login(LoginRequest request) {
@@ -88,16 +90,7 @@ public class AuthServiceImpl implements AuthService {
     
     @Override
     public UserDTO getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
-        }
-        
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        User user = userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        
-        return mapToDTO(user);
+        return mapToDTO(currentUser.getUser());
     }
     
     @Override
@@ -1,26 +1,37 @@
 package com.petshop.service.impl;
 
 import com.petshop.dto.request.BookingRequest;
+import com.petshop.dto.request.BulkBookingStatusRequest;
+import com.petshop.dto.response.BookingCalendarDTO;
 import com.petshop.dto.response.BookingDTO;
+import com.petshop.dto.response.BulkActionResultDTO;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.entity.*;
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.*;
-import com.petshop.security.UserPrincipal;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.service.BookingService;
+import com.petshop.service.support.CodeGenerator;
+import com.petshop.service.support.KeysetCursor;
+import com.petshop.service.support.ServicePriceIndex;
+import com.petshop.service.support.StaffScheduleIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,11 +42,19 @@ public class BookingServiceImpl implements BookingService {
     private final SpaServiceRepository spaServiceRepository;
     private final PetRepository petRepository;
     private final UserRepository userRepository;
+    private final StaffScheduleIndex staffScheduleIndex;
+    private final ServicePriceIndex servicePriceIndex;
+    private final CurrentUserContext currentUser;
+    private final CodeGenerator codeGenerator;
+    private final DomainEventPublisher eventPublisher;
+    
+    // Tối đa 6 tuần cho một màn hình lịch tháng
+    private static final int MAX_CALENDAR_DAYS = 42;
     
     @Override
     @Transactional
     public BookingDTO createBooking(BookingRequest request) {
-        User user = getCurrentUser();
+        User user = currentUser.getUser();
         
         SpaService service = spaServiceRepository.findById(request.getServiceId())
             .orElseThrow(() -> new ResourceNotFoundException("Dịch vụ không tồn tại"));
@@ -71,51 +90,46 @@ public class BookingServiceImpl implements BookingService {
             throw new BadRequestException("Vui lòng chọn thú cưng hoặc nhập thông tin thú cưng mới");
         }
         
-        // Check time slot availability
-        LocalTime endTime = request.getStartTime().plusMinutes(service.getDuration());
-        if (!isTimeSlotAvailable(request.getBookingDate(), request.getStartTime(), endTime)) {
-            throw new BadRequestException("Khung giờ đã được đặt");
-        }
-        
         // Get price based on pet weight
         BigDecimal price = getServicePrice(service, pet);
         
+        // Reserve the least-loaded free groomer for this slot
+        LocalTime endTime = request.getStartTime().plusMinutes(service.getDuration());
+        Long chairId = staffScheduleIndex.reserve(request.getBookingDate(), request.getStartTime(), endTime)
+            .orElseThrow(() -> new BadRequestException("Khung giờ đã được đặt"));
+        Long staffId = StaffScheduleIndex.toStaffId(chairId);
+        
         Booking booking = Booking.builder()
             .user(user)
             .service(service)
             .pet(pet)
-            .bookingCode(generateBookingCode())
+            .bookingCode(codeGenerator.bookingCode())
             .bookingDate(request.getBookingDate())
             .startTime(request.getStartTime())
             .endTime(endTime)
             .status(Booking.BookingStatus.PENDING)
             .price(price)
             .customerNote(request.getCustomerNote())
+            .staff(staffId != null ? userRepository.getReferenceById(staffId) : null)
             .build();
         
         booking = bookingRepository.save(booking);
+        eventPublisher.publish(new DomainEvent.BookingCreated(booking.getId(), user.getId()));
         return mapToDTO(booking);
     }
     
     @Override
     public boolean isTimeSlotAvailable(LocalDate date, LocalTime startTime, LocalTime endTime) {
-        List<Booking> existingBookings = bookingRepository.findByDate(date);
-        
-        for (Booking booking : existingBookings) {
-            if (booking.getStatus() == Booking.BookingStatus.CANCELLED) {
-                continue;
-            }
-            
-            // Check overlap
-            if (startTime.isBefore(booking.getEndTime()) && endTime.isAfter(booking.getStartTime())) {
-                return false;
-            }
-        }
-        
-        return true;
+        return getRemainingCapacity(date, startTime, endTime) > 0;
     }
     
     @Override
+    public int getRemainingCapacity(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return staffScheduleIndex.remainingCapacity(date, startTime, endTime);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
     public BookingDTO getBookingById(Long id) {
         Booking booking = bookingRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Lịch hẹn không tồn tại"));
@@ -123,6 +137,7 @@ public class BookingServiceImpl implements BookingService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public BookingDTO getBookingByCode(String bookingCode) {
         Booking booking = bookingRepository.findByBookingCode(bookingCode)
             .orElseThrow(() -> new ResourceNotFoundException("Lịch hẹn không tồn tại"));
@@ -130,20 +145,19 @@ public class BookingServiceImpl implements BookingService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<BookingDTO> getMyBookings(Pageable pageable) {
-        User user = getCurrentUser();
-        return bookingRepository.findByUserIdOrderByBookingDateDescStartTimeDesc(user.getId(), pageable)
+        return bookingRepository.findByUserIdOrderByBookingDateDescStartTimeDesc(currentUser.getUserId(), pageable)
             .map(this::mapToDTO);
     }
     
     @Override
     @Transactional
     public BookingDTO cancelBooking(Long id, String reason) {
-        User user = getCurrentUser();
         Booking booking = bookingRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Lịch hẹn không tồn tại"));
         
-        if (!booking.getUser().getId().equals(user.getId())) {
+        if (!booking.getUser().getId().equals(currentUser.getUserId())) {
             throw new BadRequestException("Không có quyền truy cập");
         }
         
@@ -154,6 +168,7 @@ public class BookingServiceImpl implements BookingService {
         booking.setStatus(Booking.BookingStatus.CANCELLED);
         booking.setCancelReason(reason);
         booking = bookingRepository.save(booking);
+        releaseSlot(booking);
         
         return mapToDTO(booking);
     }
@@ -161,28 +176,83 @@ public class BookingServiceImpl implements BookingService {
     // === Admin/Staff Methods ===
     
     @Override
+    @Transactional(readOnly = true)
     public List<BookingDTO> getBookingsByDate(LocalDate date) {
-        return bookingRepository.findByDate(date).stream()
+        return bookingRepository.findCalendarRange(date, date).stream()
             .map(this::mapToDTO)
             .collect(Collectors.toList());
     }
     
     @Override
+    @Transactional(readOnly = true)
+    public BookingCalendarDTO getCalendar(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new BadRequestException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        if (from.plusDays(MAX_CALENDAR_DAYS).isBefore(to.plusDays(1))) {
+            throw new BadRequestException("Khoảng thời gian tối đa là " + MAX_CALENDAR_DAYS + " ngày");
+        }
+        
+        List<Booking> bookings = bookingRepository.findCalendarRange(from, to);
+        
+        // date -> staffId -> lane (giữ thứ tự theo giờ bắt đầu)
+        Map<LocalDate, Map<Long, BookingCalendarDTO.StaffLaneDTO>> lanesByDay = new LinkedHashMap<>();
+        for (Booking booking : bookings) {
+            User staff = booking.getStaff();
+            Long staffId = staff != null ? staff.getId() : null;
+            BookingCalendarDTO.StaffLaneDTO lane = lanesByDay
+                .computeIfAbsent(booking.getBookingDate(), d -> new LinkedHashMap<>())
+                .computeIfAbsent(staffId, id -> BookingCalendarDTO.StaffLaneDTO.builder()
+                    .staffId(id)
+                    .staffName(staff != null ? staff.getFullName() : null)
+                    .bookings(new ArrayList<>())
+                    .build());
+            lane.getBookings().add(mapToCalendarEntry(booking));
+        }
+        
+        List<BookingCalendarDTO.CalendarDayDTO> days = lanesByDay.entrySet().stream()
+            .map(e -> BookingCalendarDTO.CalendarDayDTO.builder()
+                .date(e.getKey())
+                .lanes(new ArrayList<>(e.getValue().values()))
+                .build())
+            .collect(Collectors.toList());
+        
+        return BookingCalendarDTO.builder()
+            .from(from)
+            .to(to)
+            .totalBookings(bookings.size())
+            .days(days)
+            .build();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
     public Page<BookingDTO> getAllBookings(Pageable pageable) {
         return bookingRepository.findAll(pageable).map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<BookingDTO> getBookingsByStatus(Booking.BookingStatus status, Pageable pageable) {
         return bookingRepository.findByStatusOrderByBookingDateDescStartTimeDesc(status, pageable).map(this::mapToDTO);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<BookingDTO> getBookingsByStatusByCursor(Booking.BookingStatus status, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Booking> bookings = bookingRepository.findByStatusBefore(status, after.createdAt(), after.id(),
+            KeysetCursor.limit(size));
+        return KeysetCursor.toPage(bookings, size, b -> new KeysetCursor(b.getCreatedAt(), b.getId()), this::mapToDTO);
+    }
+    
     @Override
     @Transactional
     public BookingDTO confirmBooking(Long id) {
         Booking booking = getBookingEntity(id);
         validateStatusTransition(booking.getStatus(), Booking.BookingStatus.CONFIRMED);
         booking.setStatus(Booking.BookingStatus.CONFIRMED);
+        booking.setConfirmedAt(LocalDateTime.now());
         booking = bookingRepository.save(booking);
         return mapToDTO(booking);
     }
@@ -218,9 +288,13 @@ public class BookingServiceImpl implements BookingService {
             throw new BadRequestException("Không thể hủy lịch hẹn này");
         }
         
+        boolean slotHeld = isSlotHeld(booking.getStatus());
         booking.setStatus(Booking.BookingStatus.CANCELLED);
         booking.setCancelReason(reason);
         booking = bookingRepository.save(booking);
+        if (slotHeld) {
+            releaseSlot(booking);
+        }
         
         return mapToDTO(booking);
     }
@@ -236,10 +310,86 @@ public class BookingServiceImpl implements BookingService {
         
         booking.setStatus(Booking.BookingStatus.NO_SHOW);
         booking = bookingRepository.save(booking);
+        releaseSlot(booking);
         
         return mapToDTO(booking);
     }
     
+    @Override
+    @Transactional
+    public BulkActionResultDTO bulkUpdateStatus(BulkBookingStatusRequest request) {
+        Booking.BookingStatus target = switch (request.getAction()) {
+            case CONFIRM -> Booking.BookingStatus.CONFIRMED;
+            case START -> Booking.BookingStatus.IN_PROGRESS;
+            case COMPLETE -> Booking.BookingStatus.COMPLETED;
+            case NO_SHOW -> Booking.BookingStatus.NO_SHOW;
+        };
+        
+        List<Long> ids = request.getBookingIds().stream().distinct().collect(Collectors.toList());
+        // Khóa trước khi đọc: trạng thái kiểm tra bên dưới không thể bị request khác đổi,
+        // nên mỗi booking được chấp nhận chắc chắn do chính lần gọi này cập nhật
+        bookingRepository.lockByIds(ids);
+        Map<Long, Object[]> snapshots = bookingRepository.findStatusSnapshots(ids).stream()
+            .collect(Collectors.toMap(row -> (Long) row[0], row -> row));
+        
+        // Validate in memory, keep results in request order
+        Map<Long, BulkActionResultDTO.ItemResult> results = new LinkedHashMap<>();
+        List<Long> accepted = new ArrayList<>();
+        for (Long id : ids) {
+            Object[] row = snapshots.get(id);
+            if (row == null) {
+                results.put(id, bulkFailure(id, null, "Lịch hẹn không tồn tại"));
+                continue;
+            }
+            Booking.BookingStatus current = (Booking.BookingStatus) row[1];
+            try {
+                validateStatusTransition(current, target);
+                accepted.add(id);
+                results.put(id, null);
+            } catch (BadRequestException e) {
+                results.put(id, bulkFailure(id, current, e.getMessage()));
+            }
+        }
+        
+        if (!accepted.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            int updated = switch (target) {
+                case CONFIRMED -> bookingRepository.bulkConfirm(accepted, now);
+                case COMPLETED -> bookingRepository.bulkComplete(accepted, now);
+                default -> bookingRepository.bulkUpdateStatus(accepted, Booking.BookingStatus.CONFIRMED, target, now);
+            };
+            if (updated != accepted.size()) {
+                throw new IllegalStateException(
+                    "Bulk booking update touched " + updated + " of " + accepted.size() + " locked rows");
+            }
+            
+            for (Long id : accepted) {
+                results.put(id, BulkActionResultDTO.ItemResult.builder()
+                    .id(id)
+                    .success(true)
+                    .status(target.name())
+                    .build());
+                
+                if (target == Booking.BookingStatus.NO_SHOW) {
+                    Object[] row = snapshots.get(id);
+                    staffScheduleIndex.releaseAfterCommit((LocalDate) row[2], (Long) row[5],
+                        (LocalTime) row[3], (LocalTime) row[4]);
+                }
+            }
+        }
+        
+        return BulkActionResultDTO.of(new ArrayList<>(results.values()));
+    }
+    
+    private BulkActionResultDTO.ItemResult bulkFailure(Long id, Booking.BookingStatus status, String message) {
+        return BulkActionResultDTO.ItemResult.builder()
+            .id(id)
+            .success(false)
+            .status(status != null ? status.name() : null)
+            .message(message)
+            .build();
+    }
+    
     @Override
     @Transactional
     public BookingDTO assignStaff(Long id, Long staffId) {
@@ -252,6 +402,15 @@ public class BookingServiceImpl implements BookingService {
             throw new BadRequestException("User không phải nhân viên");
         }
         
+        if (isSlotHeld(booking.getStatus())) {
+            Long currentStaffId = booking.getStaff() != null ? booking.getStaff().getId() : null;
+            if (!staff.getId().equals(currentStaffId) &&
+                !staffScheduleIndex.reassign(booking.getBookingDate(), booking.getId(), currentStaffId,
+                    staff.getId(), booking.getStartTime(), booking.getEndTime())) {
+                throw new BadRequestException("Nhân viên đã có lịch hẹn trong khung giờ này");
+            }
+        }
+        
         booking.setStaff(staff);
         booking = bookingRepository.save(booking);
         
@@ -263,6 +422,16 @@ public class BookingServiceImpl implements BookingService {
             .orElseThrow(() -> new ResourceNotFoundException("Lịch hẹn không tồn tại"));
     }
     
+    private boolean isSlotHeld(Booking.BookingStatus status) {
+        return status != Booking.BookingStatus.CANCELLED && status != Booking.BookingStatus.NO_SHOW;
+    }
+    
+    private void releaseSlot(Booking booking) {
+        staffScheduleIndex.releaseAfterCommit(booking.getBookingDate(),
+            booking.getStaff() != null ? booking.getStaff().getId() : null,
+            booking.getStartTime(), booking.getEndTime());
+    }
+    
     private void validateStatusTransition(Booking.BookingStatus current, Booking.BookingStatus next) {
         boolean valid = switch (current) {
             case PENDING -> next == Booking.BookingStatus.CONFIRMED || 
@@ -280,28 +449,25 @@ public class BookingServiceImpl implements BookingService {
     }
     
     private BigDecimal getServicePrice(SpaService service, Pet pet) {
-        if (service.getPricingList() == null || service.getPricingList().isEmpty()) {
-            throw new BadRequestException("Dịch vụ chưa có bảng giá");
-        }
-        
-        // Find price based on pet weight
-        return service.getPriceForWeight(pet.getWeight());
-    }
-    
-    private String generateBookingCode() {
-        return "BK" + System.currentTimeMillis() + 
-            UUID.randomUUID().toString().substring(0, 4).toUpperCase();
+        // Find price based on pet type and weight
+        return servicePriceIndex.quote(service.getId(), pet.getType(), pet.getWeight())
+            .map(ServicePriceIndex.PriceTier::price)
+            .orElseThrow(() -> new BadRequestException("Dịch vụ chưa có bảng giá"));
     }
     
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
-        }
-        
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    private BookingCalendarDTO.CalendarEntryDTO mapToCalendarEntry(Booking booking) {
+        return BookingCalendarDTO.CalendarEntryDTO.builder()
+            .id(booking.getId())
+            .code(booking.getBookingCode())
+            .start(booking.getStartTime())
+            .end(booking.getEndTime())
+            .status(booking.getStatus())
+            .serviceId(booking.getService().getId())
+            .serviceName(booking.getService().getName())
+            .petName(booking.getPet().getName())
+            .customerName(booking.getUser().getFullName())
+            .customerPhone(booking.getUser().getPhone())
+            .build();
     }
     
     private BookingDTO mapToDTO(Booking booking) {
@@ -1,141 +1,142 @@
 package com.petshop.service.impl;
 
 import com.petshop.dto.request.CartItemRequest;
+import com.petshop.dto.request.CartMergeRequest;
 import com.petshop.dto.response.CartDTO;
 import com.petshop.dto.response.CartItemDTO;
-import com.petshop.entity.CartItem;
-import com.petshop.entity.Product;
-import com.petshop.entity.ProductVariant;
-import com.petshop.entity.User;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
-import com.petshop.repository.CartItemRepository;
 import com.petshop.repository.ProductVariantRepository;
-import com.petshop.repository.UserRepository;
-import com.petshop.security.UserPrincipal;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.service.CartService;
+import com.petshop.service.support.CartStore;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
 
-    private final CartItemRepository cartItemRepository;
     private final ProductVariantRepository productVariantRepository;
-    private final UserRepository userRepository;
+    private final CartStore cartStore;
+    private final CurrentUserContext currentUser;
 
     @Override
     public CartDTO getCart() {
-        User user = getCurrentUser();
-        List<CartItem> items = cartItemRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
-        return buildCartDTO(items);
+        return buildCartDTO(cartStore.getLines(currentUser.getUserId()));
     }
 
     @Override
     @Transactional
     public CartItemDTO addToCart(CartItemRequest request) {
-        User user = getCurrentUser();
+        Long userId = currentUser.getUserId();
 
-        ProductVariant variant = productVariantRepository.findById(request.getVariantId())
+        VariantSnapshot variant = findSnapshot(request.getVariantId())
             .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không tồn tại"));
 
-        if (!variant.isActive()) {
+        if (!variant.active()) {
             throw new BadRequestException("Sản phẩm không còn hoạt động");
         }
 
-        if (variant.getStock() < request.getQuantity()) {
+        if (variant.stock() < request.getQuantity()) {
             throw new BadRequestException("Không đủ hàng trong kho");
         }
 
-        Optional<CartItem> existingItem = cartItemRepository.findByUserIdAndVariantId(
-            user.getId(), variant.getId());
-
-        CartItem savedItem;
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            int newQuantity = item.getQuantity() + request.getQuantity();
-            if (variant.getStock() < newQuantity) {
+        Optional<CartStore.CartLine> existingLine = cartStore.findByVariant(userId, variant.variantId());
+        if (existingLine.isPresent()) {
+            int newQuantity = existingLine.get().getQuantity() + request.getQuantity();
+            if (variant.stock() < newQuantity) {
                 throw new BadRequestException("Không đủ hàng trong kho");
             }
-            item.setQuantity(newQuantity);
-            savedItem = cartItemRepository.save(item);
-        } else {
-            CartItem newItem = CartItem.builder()
-                .user(user)
-                .variant(variant)
-                .quantity(request.getQuantity())
-                .build();
-            savedItem = cartItemRepository.save(newItem);
         }
 
-        return mapToItemDTO(savedItem);
+        CartStore.CartLine line = cartStore.add(userId, currentUser.getUserReference(),
+            productVariantRepository.getReferenceById(variant.variantId()), request.getQuantity());
+        return mapToItemDTO(line, variant);
+    }
+
+    @Override
+    public CartDTO mergeCart(CartMergeRequest request) {
+        Long userId = currentUser.getUserId();
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        request.getItems().forEach(item -> quantities.merge(item.getVariantId(), item.getQuantity(), Integer::sum));
+
+        // Kiểm tra tất cả biến thể trong một truy vấn, bỏ qua sản phẩm ngừng bán hoặc hết hàng
+        Map<Long, VariantSnapshot> variants = findSnapshots(quantities.keySet());
+        List<CartStore.MergeLine> lines = new ArrayList<>();
+        quantities.forEach((variantId, quantity) -> {
+            VariantSnapshot variant = variants.get(variantId);
+            if (variant != null && variant.active() && variant.stock() > 0) {
+                lines.add(new CartStore.MergeLine(variantId, Math.min(quantity, variant.stock()), variant.stock()));
+            }
+        });
+
+        cartStore.merge(userId, lines);
+        return buildCartDTO(cartStore.getLines(userId));
     }
 
     @Override
     @Transactional
     public CartItemDTO updateCartItem(Long itemId, Integer quantity) {
-        User user = getCurrentUser();
+        Long userId = currentUser.getUserId();
 
-        CartItem item = cartItemRepository.findById(itemId)
+        CartStore.CartLine line = cartStore.findById(userId, itemId)
             .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không có trong giỏ hàng"));
 
-        if (!item.getUser().getId().equals(user.getId())) {
-            throw new BadRequestException("Không có quyền truy cập");
-        }
-
         if (quantity <= 0) {
-            cartItemRepository.delete(item);
+            cartStore.remove(userId, itemId);
             return null;
-        } else {
-            if (item.getVariant().getStock() < quantity) {
-                throw new BadRequestException("Không đủ hàng trong kho");
-            }
-            item.setQuantity(quantity);
-            CartItem savedItem = cartItemRepository.save(item);
-            return mapToItemDTO(savedItem);
         }
+
+        VariantSnapshot variant = findSnapshot(line.getVariantId())
+            .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không tồn tại"));
+        if (variant.stock() < quantity) {
+            throw new BadRequestException("Không đủ hàng trong kho");
+        }
+
+        CartStore.CartLine updated = cartStore.updateQuantity(userId, itemId, quantity)
+            .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không có trong giỏ hàng"));
+        return mapToItemDTO(updated, variant);
     }
 
     @Override
     @Transactional
     public void removeFromCart(Long itemId) {
-        User user = getCurrentUser();
-
-        CartItem item = cartItemRepository.findById(itemId)
-            .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không có trong giỏ hàng"));
-
-        if (!item.getUser().getId().equals(user.getId())) {
-            throw new BadRequestException("Không có quyền truy cập");
+        if (!cartStore.remove(currentUser.getUserId(), itemId)) {
+            throw new ResourceNotFoundException("Sản phẩm không có trong giỏ hàng");
         }
-
-        cartItemRepository.delete(item);
     }
 
     @Override
     @Transactional
     public void clearCart() {
-        User user = getCurrentUser();
-        cartItemRepository.deleteByUserId(user.getId());
+        cartStore.clear(currentUser.getUserId());
     }
 
     @Override
     public Long countCartItems() {
-        User user = getCurrentUser();
-        return cartItemRepository.countByUserId(user.getId());
+        return (long) cartStore.count(currentUser.getUserId());
     }
 
-    private CartDTO buildCartDTO(List<CartItem> items) {
-        List<CartItemDTO> itemDTOs = items.stream()
-            .map(this::mapToItemDTO)
+    private CartDTO buildCartDTO(List<CartStore.CartLine> lines) {
+        Map<Long, VariantSnapshot> variants = findSnapshots(
+            lines.stream().map(CartStore.CartLine::getVariantId).collect(Collectors.toSet()));
+
+        List<CartItemDTO> itemDTOs = lines.stream()
+            .filter(line -> variants.containsKey(line.getVariantId()))
+            .map(line -> mapToItemDTO(line, variants.get(line.getVariantId())))
             .collect(Collectors.toList());
 
         BigDecimal subtotal = itemDTOs.stream()
@@ -153,51 +154,54 @@ public class CartServiceImpl implements CartService {
             .build();
     }
 
-    private CartItemDTO mapToItemDTO(CartItem item) {
-        ProductVariant variant = item.getVariant();
-        Product product = variant.getProduct();
-        
-        BigDecimal price = variant.getPrice();
-        BigDecimal salePrice = product.getSalePrice();
-        BigDecimal currentPrice = (salePrice != null && salePrice.compareTo(price) < 0) ? salePrice : price;
-        BigDecimal subtotal = currentPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
+    private Optional<VariantSnapshot> findSnapshot(Long variantId) {
+        return Optional.ofNullable(findSnapshots(List.of(variantId)).get(variantId));
+    }
 
-        String productImage = null;
-        if (product.getImages() != null && !product.getImages().isEmpty()) {
-            productImage = product.getImages().stream()
-                .filter(img -> img.isPrimary())
-                .findFirst()
-                .map(img -> img.getImageUrl())
-                .orElse(product.getImages().get(0).getImageUrl());
+    // Giá, tồn kho và ảnh của các biến thể trong một truy vấn
+    private Map<Long, VariantSnapshot> findSnapshots(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) {
+            return Map.of();
         }
+        return productVariantRepository.findCartSnapshots(variantIds).stream()
+            .map(VariantSnapshot::of)
+            .collect(Collectors.toMap(VariantSnapshot::variantId, Function.identity()));
+    }
+
+    private CartItemDTO mapToItemDTO(CartStore.CartLine item, VariantSnapshot variant) {
+        BigDecimal price = variant.price();
+        BigDecimal salePrice = variant.salePrice();
+        BigDecimal currentPrice = (salePrice != null && salePrice.compareTo(price) < 0) ? salePrice : price;
+        BigDecimal subtotal = currentPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
 
         return CartItemDTO.builder()
             .id(item.getId())
-            .productId(product.getId())
-            .productName(product.getName())
-            .productSlug(product.getSlug())
-            .productImage(productImage)
-            .variantId(variant.getId())
-            .variantName(variant.getName())
+            .productId(variant.productId())
+            .productName(variant.productName())
+            .productSlug(variant.productSlug())
+            .productImage(variant.productImage())
+            .variantId(variant.variantId())
+            .variantName(variant.variantName())
             .price(price)
             .salePrice(salePrice)
             .currentPrice(currentPrice)
-            .stockQuantity(variant.getStock())
-            .inStock(variant.getStock() > 0)
+            .stockQuantity(variant.stock())
+            .inStock(variant.stock() > 0)
             .quantity(item.getQuantity())
             .subtotal(subtotal)
             .createdAt(item.getCreatedAt())
             .build();
     }
-    
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
+
+    private record VariantSnapshot(Long variantId, String variantName, BigDecimal price, int stock, boolean active,
+                                   Long productId, String productName, String productSlug,
+                                   BigDecimal salePrice, String productImage) {
+
+        // row: [variantId, variantName, price, stock, active, productId, productName, slug, salePrice, primaryImageUrl]
+        static VariantSnapshot of(Object[] row) {
+            return new VariantSnapshot((Long) row[0], (String) row[1], (BigDecimal) row[2], (Integer) row[3],
+                (Boolean) row[4], (Long) row[5], (String) row[6], (String) row[7],
+                (BigDecimal) row[8], (String) row[9]);
         }
-        
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 }
@@ -107,6 +107,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public CategoryDTO getCategoryById(Long id) {
         Category category = categoryRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Danh mục không tồn tại"));
@@ -114,6 +115,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public CategoryDTO getCategoryBySlug(String slug) {
         Category category = categoryRepository.findBySlug(slug)
             .orElseThrow(() -> new ResourceNotFoundException("Danh mục không tồn tại"));
@@ -121,6 +123,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getAllCategories() {
         return categoryRepository.findAllByOrderByDisplayOrderAsc().stream()
             .map(this::mapToDTO)
@@ -128,6 +131,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getRootCategories() {
         return categoryRepository.findByParentIsNullAndActiveIsTrueOrderByDisplayOrderAsc().stream()
             .map(this::mapToDTO)
@@ -135,6 +139,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getChildCategories(Long parentId) {
         return categoryRepository.findByParentIdAndActiveIsTrueOrderByDisplayOrderAsc(parentId).stream()
             .map(this::mapToDTO)
@@ -142,6 +147,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getCategoryTree() {
         return categoryRepository.findByParentIsNullAndActiveIsTrueOrderByDisplayOrderAsc().stream()
             .map(this::mapToDTOWithChildren)
@@ -149,6 +155,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getCategoriesByPetType(String petType) {
         Category.PetType type = Category.PetType.valueOf(petType.toUpperCase());
         return categoryRepository.findByPetTypeAndActiveIsTrueOrderByDisplayOrderAsc(type).stream()
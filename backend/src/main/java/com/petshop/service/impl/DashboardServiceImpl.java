@@ -8,6 +8,7 @@ import com.petshop.service.DashboardService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -28,6 +29,7 @@ public class DashboardServiceImpl implements DashboardService {
     private final ProductVariantRepository productVariantRepository;
     
     @Override
+    @Transactional(readOnly = true)
     public DashboardDTO getDashboard() {
         LocalDate today = LocalDate.now();
         LocalDate firstDayOfMonth = today.withDayOfMonth(1);
@@ -35,6 +37,7 @@ public class DashboardServiceImpl implements DashboardService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public DashboardDTO getDashboard(LocalDate startDate, LocalDate endDate) {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
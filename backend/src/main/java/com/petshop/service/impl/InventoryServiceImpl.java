@@ -1,23 +1,25 @@
 package com.petshop.service.impl;
 
 import com.petshop.dto.request.StockMovementRequest;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.dto.response.ProductVariantDTO;
 import com.petshop.dto.response.StockMovementDTO;
 import com.petshop.entity.ProductVariant;
 import com.petshop.entity.StockMovement;
 import com.petshop.entity.User;
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.ProductVariantRepository;
 import com.petshop.repository.StockMovementRepository;
-import com.petshop.repository.UserRepository;
-import com.petshop.security.UserPrincipal;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.service.InventoryService;
+import com.petshop.service.support.KeysetCursor;
+import com.petshop.service.support.LowStockIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,7 +32,9 @@ public class InventoryServiceImpl implements InventoryService {
     
     private final StockMovementRepository stockMovementRepository;
     private final ProductVariantRepository productVariantRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserContext currentUser;
+    private final DomainEventPublisher eventPublisher;
+    private final LowStockIndex lowStockIndex;
     
     @Override
     @Transactional
@@ -38,7 +42,7 @@ public class InventoryServiceImpl implements InventoryService {
         ProductVariant variant = productVariantRepository.findById(request.getVariantId())
             .orElseThrow(() -> new ResourceNotFoundException("Biến thể sản phẩm không tồn tại"));
         
-        User user = getCurrentUser();
+        User user = currentUser.getUser();
         
         int previousStock = variant.getStock();
         int newStock = previousStock + request.getQuantity();
@@ -57,6 +61,7 @@ public class InventoryServiceImpl implements InventoryService {
             .build();
         
         movement = stockMovementRepository.save(movement);
+        eventPublisher.publish(new DomainEvent.StockChanged(List.of(variant.getId())));
         return mapToDTO(movement);
     }
     
@@ -66,7 +71,7 @@ public class InventoryServiceImpl implements InventoryService {
         ProductVariant variant = productVariantRepository.findById(request.getVariantId())
             .orElseThrow(() -> new ResourceNotFoundException("Biến thể sản phẩm không tồn tại"));
         
-        User user = getCurrentUser();
+        User user = currentUser.getUser();
         
         int previousStock = variant.getStock();
         int newStock = previousStock + request.getQuantity(); // Can be negative for reduction
@@ -89,39 +94,55 @@ public class InventoryServiceImpl implements InventoryService {
             .build();
         
         movement = stockMovementRepository.save(movement);
+        eventPublisher.publish(new DomainEvent.StockChanged(List.of(variant.getId())));
         return mapToDTO(movement);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<StockMovementDTO> getStockMovements(Long variantId, Pageable pageable) {
         return stockMovementRepository.findByVariantIdOrderByCreatedAtDesc(variantId, pageable)
             .map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<StockMovementDTO> getStockMovementsByCursor(Long variantId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<StockMovement> movements = stockMovementRepository.findByVariantIdBefore(variantId,
+            after.createdAt(), after.id(), KeysetCursor.limit(size));
+        return KeysetCursor.toPage(movements, size, m -> new KeysetCursor(m.getCreatedAt(), m.getId()), this::mapToDTO);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
     public List<ProductVariantDTO> getLowStockProducts() {
-        int threshold = 10; // Default threshold
-        return productVariantRepository.findLowStock(threshold).stream()
+        return lowStockIndex.getLowStock().stream()
             .map(this::mapToVariantDTO)
             .collect(Collectors.toList());
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<ProductVariantDTO> getOutOfStockProducts() {
-        return productVariantRepository.findOutOfStock().stream()
+        return lowStockIndex.getOutOfStock().stream()
             .map(this::mapToVariantDTO)
             .collect(Collectors.toList());
     }
     
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
+    @Override
+    @Transactional
+    public ProductVariantDTO updateLowStockThreshold(Long variantId, int threshold) {
+        if (threshold < 0) {
+            throw new BadRequestException("Ngưỡng cảnh báo không hợp lệ");
         }
+        ProductVariant variant = productVariantRepository.findById(variantId)
+            .orElseThrow(() -> new ResourceNotFoundException("Biến thể sản phẩm không tồn tại"));
         
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        variant.setLowStockThreshold(threshold);
+        variant = productVariantRepository.save(variant);
+        eventPublisher.publish(new DomainEvent.StockChanged(List.of(variant.getId())));
+        return mapToVariantDTO(variant);
     }
     
     private StockMovementDTO mapToDTO(StockMovement movement) {
@@ -150,6 +171,21 @@ public class InventoryServiceImpl implements InventoryService {
             .price(variant.getPrice())
             .stock(variant.getStock())
             .active(variant.isActive())
+            .lowStockThreshold(variant.getLowStockThreshold())
+            .build();
+    }
+    
+    private ProductVariantDTO mapToVariantDTO(LowStockIndex.StockLevel level) {
+        return ProductVariantDTO.builder()
+            .id(level.variantId())
+            .productId(level.productId())
+            .productName(level.productName())
+            .name(level.variantName())
+            .sku(level.sku())
+            .price(level.price())
+            .stock(level.stock())
+            .active(level.active())
+            .lowStockThreshold(level.threshold())
             .build();
     }
 }
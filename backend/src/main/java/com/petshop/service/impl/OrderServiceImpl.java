@@ -1,28 +1,41 @@
 package com.petshop.service.impl;
 
+import com.petshop.dto.request.BulkOrderStatusRequest;
 import com.petshop.dto.request.OrderRequest;
+import com.petshop.dto.response.BulkActionResultDTO;
+import com.petshop.dto.response.CursorPageDTO;
 import com.petshop.dto.response.OrderDTO;
 import com.petshop.dto.response.OrderItemDTO;
+import com.petshop.dto.response.OrderSummaryDTO;
 import com.petshop.entity.*;
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.*;
-import com.petshop.security.UserPrincipal;
-import com.petshop.service.CartService;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.service.OrderService;
+import com.petshop.service.support.CartStore;
+import com.petshop.service.support.CodeGenerator;
+import com.petshop.service.support.KeysetCursor;
+import com.petshop.service.support.StockRestorer;
+import com.petshop.service.support.VoucherRedeemer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,19 +47,26 @@ public class OrderServiceImpl implements OrderService {
     private final CartItemRepository cartItemRepository;
     private final ProductVariantRepository productVariantRepository;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
     private final VoucherRepository voucherRepository;
-    private final CartService cartService;
+    private final UserPurchaseRepository userPurchaseRepository;
+    private final CartStore cartStore;
+    private final VoucherRedeemer voucherRedeemer;
+    private final CurrentUserContext currentUser;
+    private final CodeGenerator codeGenerator;
+    private final StockRestorer stockRestorer;
+    private final DomainEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
 
     private static final BigDecimal DEFAULT_SHIPPING_FEE = BigDecimal.valueOf(30000);
 
     @Override
     @Transactional
     public OrderDTO createOrder(OrderRequest request) {
-        User user = getCurrentUser();
+        User user = currentUser.getUser();
         
         // Xử lý items: ưu tiên items từ request, nếu không có thì lấy từ cart
         List<OrderItemData> orderItemsData = new ArrayList<>();
+        List<Long> orderedCartItemIds = new ArrayList<>();
         
         if (request.getItems() != null && !request.getItems().isEmpty()) {
             // Sử dụng items từ request (local cart / guest checkout)
@@ -67,13 +87,15 @@ public class OrderServiceImpl implements OrderService {
                 orderItemsData.add(new OrderItemData(variant, item.getQuantity()));
             }
         } else {
-            // Sử dụng cart items từ database
+            // Sử dụng cart items từ database (ghi các thay đổi còn chờ trước)
+            cartStore.flush(user.getId());
             List<CartItem> cartItems = cartItemRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
             if (cartItems.isEmpty()) {
                 throw new BadRequestException("Giỏ hàng trống");
             }
             for (CartItem item : cartItems) {
                 orderItemsData.add(new OrderItemData(item.getVariant(), item.getQuantity()));
+                orderedCartItemIds.add(item.getId());
             }
         }
 
@@ -114,7 +136,7 @@ public class OrderServiceImpl implements OrderService {
         // Create order
         Order order = Order.builder()
             .user(user)
-            .orderCode(generateOrderCode())
+            .orderCode(codeGenerator.orderCode())
             .status(Order.OrderStatus.PENDING)
             .paymentMethod(request.getPaymentMethod())
             .paymentStatus(Order.PaymentStatus.PENDING)
@@ -122,6 +144,7 @@ public class OrderServiceImpl implements OrderService {
             .shippingFee(shippingFee)
             .discountAmount(discountAmount)
             .totalAmount(totalAmount)
+            .totalItems(orderItemsData.stream().mapToInt(item -> item.quantity).sum())
             .voucher(voucher)
             .receiverName(request.getReceiverName())
             .receiverPhone(request.getReceiverPhone())
@@ -154,23 +177,24 @@ public class OrderServiceImpl implements OrderService {
             // Reduce stock
             variant.setStock(variant.getStock() - itemData.quantity);
             productVariantRepository.save(variant);
-
-            // Update sold count
-            Product product = variant.getProduct();
-            product.setSoldCount(product.getSoldCount() + itemData.quantity);
-            productRepository.save(product);
         }
 
-        // Update voucher usage
+        // Giữ lượt dùng voucher (atomic, kiểm tra cả giới hạn theo user)
         if (voucher != null) {
-            voucher.setUsedCount(voucher.getUsedCount() + 1);
-            voucherRepository.save(voucher);
+            voucherRedeemer.redeem(voucher, user, order);
         }
 
-        // Clear cart only if using cart items (not items from request)
-        if (request.getItems() == null || request.getItems().isEmpty()) {
-            cartService.clearCart();
-        }
+        // Bỏ khỏi giỏ đúng các dòng đã đặt, cùng transaction với đơn hàng
+        // (dòng thêm vào giỏ sau lúc đọc vẫn được giữ)
+        cartStore.removeOrdered(user.getId(), orderedCartItemIds);
+
+        // Cộng số lượng đã bán được xử lý sau commit
+        eventPublisher.publishAll(List.of(
+            new DomainEvent.OrderCreated(order.getId(), user.getId()),
+            new DomainEvent.StockChanged(orderItemsData.stream()
+                .map(item -> item.variant.getId())
+                .distinct()
+                .collect(Collectors.toList()))));
 
         return mapToDTO(order);
     }
@@ -187,21 +211,29 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getMyOrders(Pageable pageable) {
-        User user = getCurrentUser();
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(user.getId(), pageable)
-            .map(this::mapToDTO);
+        return mapPage(orderRepository.findByUserIdOrderByCreatedAtDesc(currentUser.getUserId(), pageable));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> getMyOrdersByCursor(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Order> orders = orderRepository.findByUserIdBefore(currentUser.getUserId(),
+            after.createdAt(), after.id(), KeysetCursor.limit(size));
+        return KeysetCursor.toPageBatch(orders, size, o -> new KeysetCursor(o.getCreatedAt(), o.getId()), this::mapToDTOs);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public OrderDTO getOrderById(Long id) {
-        User user = getCurrentUser();
         Order order = orderRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Đơn hàng không tồn tại"));
 
         // Check permission
-        if (!order.getUser().getId().equals(user.getId()) &&
-            user.getRole() == User.Role.CUSTOMER) {
+        if (!order.getUser().getId().equals(currentUser.getUserId()) &&
+            currentUser.getRole() == User.Role.CUSTOMER) {
             throw new BadRequestException("Không có quyền truy cập");
         }
 
@@ -209,6 +241,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public OrderDTO getOrderByCode(String orderCode) {
         Order order = orderRepository.findByOrderCode(orderCode)
             .orElseThrow(() -> new ResourceNotFoundException("Đơn hàng không tồn tại"));
@@ -218,11 +251,10 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public OrderDTO cancelOrder(Long id, String reason) {
-        User user = getCurrentUser();
         Order order = orderRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Đơn hàng không tồn tại"));
 
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(currentUser.getUserId())) {
             throw new BadRequestException("Không có quyền truy cập");
         }
 
@@ -230,12 +262,14 @@ public class OrderServiceImpl implements OrderService {
             throw new BadRequestException("Chỉ có thể hủy đơn hàng đang chờ xử lý");
         }
 
+        publishStatusChange(order, Order.OrderStatus.CANCELLED);
         order.setStatus(Order.OrderStatus.CANCELLED);
         order.setCancelReason(reason);
         order.setCancelledAt(LocalDateTime.now());
 
         // Restore stock
         restoreStock(order);
+        voucherRedeemer.release(order);
 
         order = orderRepository.save(order);
         return mapToDTO(order);
@@ -244,14 +278,43 @@ public class OrderServiceImpl implements OrderService {
     // === Admin/Staff Methods ===
 
     @Override
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable).map(this::mapToDTO);
+        return mapPage(orderRepository.findAllWithUser(pageable));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> getAllOrdersByCursor(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Order> orders = orderRepository.findAllBefore(after.createdAt(), after.id(), KeysetCursor.limit(size));
+        return KeysetCursor.toPageBatch(orders, size, o -> new KeysetCursor(o.getCreatedAt(), o.getId()), this::mapToDTOs);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getOrdersByStatus(Order.OrderStatus status, Pageable pageable) {
-        return orderRepository.findByStatusOrderByCreatedAtDesc(status, pageable)
-            .map(this::mapToDTO);
+        return mapPage(orderRepository.findByStatusOrderByCreatedAtDesc(status, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<OrderSummaryDTO> getOrderSummaries(Order.OrderStatus status, Pageable pageable) {
+        // row: [id, orderCode, userId, fullName, phone, totalItems, totalAmount, paymentMethod, paymentStatus, status, createdAt]
+        return orderRepository.findSummaries(status, pageable)
+            .map(row -> OrderSummaryDTO.builder()
+                .id((Long) row[0])
+                .orderCode((String) row[1])
+                .userId((Long) row[2])
+                .customerName((String) row[3])
+                .customerPhone((String) row[4])
+                .totalItems((Integer) row[5])
+                .totalAmount((BigDecimal) row[6])
+                .paymentMethod((Order.PaymentMethod) row[7])
+                .paymentStatus((Order.PaymentStatus) row[8])
+                .status((Order.OrderStatus) row[9])
+                .createdAt((LocalDateTime) row[10])
+                .build());
     }
 
     @Override
@@ -259,6 +322,7 @@ public class OrderServiceImpl implements OrderService {
     public OrderDTO confirmOrder(Long id) {
         Order order = getOrderEntity(id);
         validateStatusTransition(order.getStatus(), Order.OrderStatus.CONFIRMED);
+        publishStatusChange(order, Order.OrderStatus.CONFIRMED);
         order.setStatus(Order.OrderStatus.CONFIRMED);
         order.setConfirmedAt(LocalDateTime.now());
         order = orderRepository.save(order);
@@ -270,6 +334,7 @@ public class OrderServiceImpl implements OrderService {
     public OrderDTO processOrder(Long id) {
         Order order = getOrderEntity(id);
         validateStatusTransition(order.getStatus(), Order.OrderStatus.PROCESSING);
+        publishStatusChange(order, Order.OrderStatus.PROCESSING);
         order.setStatus(Order.OrderStatus.PROCESSING);
         order.setProcessingAt(LocalDateTime.now());
         order = orderRepository.save(order);
@@ -281,6 +346,7 @@ public class OrderServiceImpl implements OrderService {
     public OrderDTO shipOrder(Long id, String trackingNumber) {
         Order order = getOrderEntity(id);
         validateStatusTransition(order.getStatus(), Order.OrderStatus.SHIPPING);
+        publishStatusChange(order, Order.OrderStatus.SHIPPING);
         order.setStatus(Order.OrderStatus.SHIPPING);
         order.setTrackingNumber(trackingNumber);
         order.setShippedAt(LocalDateTime.now());
@@ -293,6 +359,7 @@ public class OrderServiceImpl implements OrderService {
     public OrderDTO deliverOrder(Long id) {
         Order order = getOrderEntity(id);
         validateStatusTransition(order.getStatus(), Order.OrderStatus.DELIVERED);
+        publishStatusChange(order, Order.OrderStatus.DELIVERED);
         order.setStatus(Order.OrderStatus.DELIVERED);
         order.setDeliveredAt(LocalDateTime.now());
         order = orderRepository.save(order);
@@ -304,6 +371,7 @@ public class OrderServiceImpl implements OrderService {
     public OrderDTO completeOrder(Long id) {
         Order order = getOrderEntity(id);
         validateStatusTransition(order.getStatus(), Order.OrderStatus.COMPLETED);
+        publishStatusChange(order, Order.OrderStatus.COMPLETED);
         order.setStatus(Order.OrderStatus.COMPLETED);
         order.setCompletedAt(LocalDateTime.now());
         
@@ -315,9 +383,120 @@ public class OrderServiceImpl implements OrderService {
         }
         
         order = orderRepository.save(order);
+        
+        // Ghi nhận sản phẩm đã mua (dùng cho quyền đánh giá)
+        userPurchaseRepository.recordOrder(order.getId());
         return mapToDTO(order);
     }
 
+    @Override
+    @Transactional
+    public BulkActionResultDTO bulkUpdateStatus(BulkOrderStatusRequest request) {
+        Order.OrderStatus target = switch (request.getAction()) {
+            case CONFIRM -> Order.OrderStatus.CONFIRMED;
+            case PROCESS -> Order.OrderStatus.PROCESSING;
+            case SHIP -> Order.OrderStatus.SHIPPING;
+            case DELIVER -> Order.OrderStatus.DELIVERED;
+            case COMPLETE -> Order.OrderStatus.COMPLETED;
+        };
+
+        List<Long> ids = request.getOrderIds().stream().distinct().collect(Collectors.toList());
+        Map<Long, String> trackingNumbers = request.getTrackingNumbers() != null
+            ? request.getTrackingNumbers() : Map.of();
+        // Khóa trước khi đọc: trạng thái kiểm tra bên dưới không thể bị request khác đổi,
+        // nên mỗi đơn được chấp nhận chắc chắn do chính lần gọi này cập nhật
+        orderRepository.lockByIds(ids);
+        Map<Long, Order.OrderStatus> statuses = orderRepository.findStatusSnapshots(ids).stream()
+            .collect(Collectors.toMap(row -> (Long) row[0], row -> (Order.OrderStatus) row[1]));
+
+        // Validate in memory, keep results in request order
+        Map<Long, BulkActionResultDTO.ItemResult> results = new LinkedHashMap<>();
+        List<Long> accepted = new ArrayList<>();
+        for (Long id : ids) {
+            Order.OrderStatus current = statuses.get(id);
+            if (current == null) {
+                results.put(id, bulkFailure(id, null, "Đơn hàng không tồn tại"));
+                continue;
+            }
+            try {
+                validateStatusTransition(current, target);
+                if (target == Order.OrderStatus.SHIPPING && isBlank(trackingNumbers.get(id))) {
+                    throw new BadRequestException("Thiếu mã vận đơn");
+                }
+                accepted.add(id);
+                results.put(id, null);
+            } catch (BadRequestException e) {
+                results.put(id, bulkFailure(id, current, e.getMessage()));
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            int updated = switch (target) {
+                case CONFIRMED -> orderRepository.bulkConfirm(accepted, now);
+                case PROCESSING -> orderRepository.bulkProcess(accepted, now);
+                case SHIPPING -> bulkShip(accepted, trackingNumbers, now);
+                case DELIVERED -> orderRepository.bulkDeliver(accepted, now);
+                default -> orderRepository.bulkComplete(accepted, now);
+            };
+
+            if (updated != accepted.size()) {
+                throw new IllegalStateException(
+                    "Bulk order update touched " + updated + " of " + accepted.size() + " locked rows");
+            }
+
+            for (Long id : accepted) {
+                results.put(id, BulkActionResultDTO.ItemResult.builder()
+                    .id(id)
+                    .success(true)
+                    .status(target.name())
+                    .build());
+            }
+
+            eventPublisher.publishAll(accepted.stream()
+                .map(id -> new DomainEvent.OrderStatusChanged(id, statuses.get(id), target))
+                .collect(Collectors.toList()));
+
+            // Ghi nhận sản phẩm đã mua (dùng cho quyền đánh giá)
+            if (target == Order.OrderStatus.COMPLETED) {
+                userPurchaseRepository.recordOrders(accepted);
+            }
+        }
+
+        return BulkActionResultDTO.of(new ArrayList<>(results.values()));
+    }
+
+    // Mỗi đơn có mã vận đơn riêng nên dùng JDBC batch thay cho một câu UPDATE ... IN
+    private int bulkShip(List<Long> ids, Map<Long, String> trackingNumbers, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> args = ids.stream()
+            .map(id -> new Object[] { trackingNumbers.get(id).trim(), timestamp, timestamp, id })
+            .collect(Collectors.toList());
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE orders SET status = 'SHIPPING', tracking_number = ?, " +
+            "shipped_at = ?, updated_at = ?, version = version + 1 WHERE id = ? AND status = 'PROCESSING'", args);
+
+        int updated = 0;
+        for (int count : counts) {
+            // Batch đã gộp (rewriteBatchedStatements) không trả số dòng; các đơn đã bị khóa
+            // và kiểm tra trạng thái nên câu lệnh chạy thành công là đã cập nhật đúng một dòng
+            updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return updated;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private BulkActionResultDTO.ItemResult bulkFailure(Long id, Order.OrderStatus status, String message) {
+        return BulkActionResultDTO.ItemResult.builder()
+            .id(id)
+            .success(false)
+            .status(status != null ? status.name() : null)
+            .message(message)
+            .build();
+    }
+
     @Override
     @Transactional
     public OrderDTO adminCancelOrder(Long id, String reason) {
@@ -329,12 +508,14 @@ public class OrderServiceImpl implements OrderService {
             throw new BadRequestException("Không thể hủy đơn hàng này");
         }
 
+        publishStatusChange(order, Order.OrderStatus.CANCELLED);
         order.setStatus(Order.OrderStatus.CANCELLED);
         order.setCancelReason(reason);
         order.setCancelledAt(LocalDateTime.now());
 
         // Restore stock
         restoreStock(order);
+        voucherRedeemer.release(order);
 
         order = orderRepository.save(order);
         return mapToDTO(order);
@@ -378,37 +559,42 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    // Gọi trước khi đổi trạng thái (order vẫn giữ trạng thái cũ)
+    private void publishStatusChange(Order order, Order.OrderStatus next) {
+        eventPublisher.publish(new DomainEvent.OrderStatusChanged(order.getId(), order.getStatus(), next));
+    }
+
+    // Hoàn kho (cộng dồn theo biến thể) và ghi phiếu RETURN
     private void restoreStock(Order order) {
-        for (OrderItem item : order.getItems()) {
-            ProductVariant variant = item.getVariant();
-            variant.setStock(variant.getStock() + item.getQuantity());
-            productVariantRepository.save(variant);
-            
-            // Reduce sold count
-            Product product = variant.getProduct();
-            product.setSoldCount(Math.max(0, product.getSoldCount() - item.getQuantity()));
-            productRepository.save(product);
-        }
+        stockRestorer.restore(List.of(order.getId()), "Hoàn kho do hủy đơn " + order.getOrderCode(),
+            currentUser.getUserId());
     }
 
-    private String generateOrderCode() {
-        return "ORD" + System.currentTimeMillis() +
-            UUID.randomUUID().toString().substring(0, 4).toUpperCase();
+    // Map một trang đơn hàng: items của cả trang được nạp bằng một câu truy vấn
+    private Page<OrderDTO> mapPage(Page<Order> page) {
+        List<OrderDTO> content = mapToDTOs(page.getContent());
+        return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
     }
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
+    private List<OrderDTO> mapToDTOs(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
         }
-
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Map<Long, List<OrderItem>> itemsByOrder = orderItemRepository
+            .findByOrderIdIn(orders.stream().map(Order::getId).collect(Collectors.toList()))
+            .stream()
+            .collect(Collectors.groupingBy(item -> item.getOrder().getId()));
+        return orders.stream()
+            .map(order -> mapToDTO(order, itemsByOrder.getOrDefault(order.getId(), List.of())))
+            .collect(Collectors.toList());
     }
 
     private OrderDTO mapToDTO(Order order) {
-        List<OrderItemDTO> itemDTOs = order.getItems().stream()
+        return mapToDTO(order, order.getItems());
+    }
+
+    private OrderDTO mapToDTO(Order order, List<OrderItem> items) {
+        List<OrderItemDTO> itemDTOs = items.stream()
             .map(item -> OrderItemDTO.builder()
                 .id(item.getId())
                 .variantId(item.getVariant() != null ? item.getVariant().getId() : null)
@@ -435,7 +621,8 @@ public class OrderServiceImpl implements OrderService {
             .note(order.getNote())
             .trackingNumber(order.getTrackingNumber())
             .items(itemDTOs)
-            .totalItems(order.getTotalItems())
+            .totalItems(order.getTotalItems() != null ? order.getTotalItems()
+                : items.stream().mapToInt(OrderItem::getQuantity).sum())
             .subtotal(order.getSubtotal())
             .shippingFee(order.getShippingFee())
             .discountAmount(order.getDiscountAmount())
@@ -4,15 +4,11 @@ import com.petshop.dto.request.PetRequest;
 import com.petshop.dto.response.PetDTO;
 import com.petshop.entity.Pet;
 import com.petshop.entity.User;
-import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.PetRepository;
-import com.petshop.repository.UserRepository;
-import com.petshop.security.UserPrincipal;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.service.PetService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,12 +20,12 @@ import java.util.stream.Collectors;
 public class PetServiceImpl implements PetService {
     
     private final PetRepository petRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserContext currentUser;
     
     @Override
     @Transactional
     public PetDTO createPet(PetRequest request) {
-        User owner = getCurrentUser();
+        User owner = currentUser.getUser();
         
         Pet pet = Pet.builder()
             .owner(owner)
@@ -49,8 +45,7 @@ public class PetServiceImpl implements PetService {
     @Override
     @Transactional
     public PetDTO updatePet(Long id, PetRequest request) {
-        User owner = getCurrentUser();
-        Pet pet = petRepository.findByIdAndOwnerId(id, owner.getId())
+        Pet pet = petRepository.findByIdAndOwnerId(id, currentUser.getUserId())
             .orElseThrow(() -> new ResourceNotFoundException("Thú cưng không tồn tại"));
         
         pet.setName(request.getName());
@@ -68,40 +63,28 @@ public class PetServiceImpl implements PetService {
     @Override
     @Transactional
     public void deletePet(Long id) {
-        User owner = getCurrentUser();
-        Pet pet = petRepository.findByIdAndOwnerId(id, owner.getId())
+        Pet pet = petRepository.findByIdAndOwnerId(id, currentUser.getUserId())
             .orElseThrow(() -> new ResourceNotFoundException("Thú cưng không tồn tại"));
         
         petRepository.delete(pet);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public PetDTO getPetById(Long id) {
-        User owner = getCurrentUser();
-        Pet pet = petRepository.findByIdAndOwnerId(id, owner.getId())
+        Pet pet = petRepository.findByIdAndOwnerId(id, currentUser.getUserId())
             .orElseThrow(() -> new ResourceNotFoundException("Thú cưng không tồn tại"));
         return mapToDTO(pet);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<PetDTO> getMyPets() {
-        User owner = getCurrentUser();
-        return petRepository.findByOwnerId(owner.getId()).stream()
+        return petRepository.findByOwnerId(currentUser.getUserId()).stream()
             .map(this::mapToDTO)
             .collect(Collectors.toList());
     }
     
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
-        }
-        
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-    }
-    
     private PetDTO mapToDTO(Pet pet) {
         return PetDTO.builder()
             .id(pet.getId())
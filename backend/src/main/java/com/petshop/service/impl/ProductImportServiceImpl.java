@@ -333,6 +333,8 @@ public class ProductImportServiceImpl implements ProductImportService {
                         .sortOrder(0)
                         .build();
                     productImageRepository.save(image);
+                    product.setPrimaryImageUrl(image.getImageUrl());
+                    productRepository.save(product);
                 }
                 
                 result.addSuccess(productName);
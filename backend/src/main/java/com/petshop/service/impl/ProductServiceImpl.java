@@ -5,6 +5,8 @@ import com.petshop.dto.response.ProductDTO;
 import com.petshop.dto.response.ProductImageDTO;
 import com.petshop.dto.response.ProductVariantDTO;
 import com.petshop.entity.*;
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.*;
@@ -29,6 +31,7 @@ public class ProductServiceImpl implements ProductService {
     private final BrandRepository brandRepository;
     private final ProductImageRepository productImageRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final DomainEventPublisher eventPublisher;
     
     @Override
     @Transactional
@@ -76,6 +79,7 @@ public class ProductServiceImpl implements ProductService {
                 .collect(Collectors.toList());
             productImageRepository.saveAll(images);
             product.setImages(images);
+            product.refreshPrimaryImageUrl();
         }
         
         // Add variants
@@ -93,6 +97,7 @@ public class ProductServiceImpl implements ProductService {
                 .collect(Collectors.toList());
             productVariantRepository.saveAll(variants);
             product.setVariants(variants);
+            eventPublisher.publish(new DomainEvent.StockChanged(variantIds(variants)));
         }
         
         return mapToDTO(product);
@@ -144,10 +149,13 @@ public class ProductServiceImpl implements ProductService {
                 .collect(Collectors.toList());
             productImageRepository.saveAll(newImages);
             product.setImages(newImages);
+            product.refreshPrimaryImageUrl();
         }
         
         // Cập nhật variants - xóa cũ và thêm mới
         if (request.getVariants() != null) {
+            // Biến thể cũ bị xóa cũng phải rời khỏi danh sách cảnh báo tồn kho
+            List<Long> changedVariantIds = new ArrayList<>(variantIds(product.getVariants()));
             productVariantRepository.deleteAll(product.getVariants());
             product.getVariants().clear();
             
@@ -164,6 +172,10 @@ public class ProductServiceImpl implements ProductService {
                 .collect(Collectors.toList());
             productVariantRepository.saveAll(newVariants);
             product.setVariants(newVariants);
+            changedVariantIds.addAll(variantIds(newVariants));
+            if (!changedVariantIds.isEmpty()) {
+                eventPublisher.publish(new DomainEvent.StockChanged(changedVariantIds));
+            }
         }
         
         product = productRepository.save(product);
@@ -176,11 +188,24 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không tồn tại"));
         
+        List<Long> variantIds = variantIds(product.getVariants());
+        
         // Hard delete - xóa thực sự khỏi database
         productRepository.delete(product);
+        if (!variantIds.isEmpty()) {
+            eventPublisher.publish(new DomainEvent.StockChanged(variantIds));
+        }
+    }
+    
+    private List<Long> variantIds(List<ProductVariant> variants) {
+        if (variants == null) {
+            return List.of();
+        }
+        return variants.stream().map(ProductVariant::getId).collect(Collectors.toList());
     }
     
     @Override
+    @Transactional(readOnly = true)
     public ProductDTO getProductById(Long id) {
         Product product = productRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không tồn tại"));
@@ -188,6 +213,7 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public ProductDTO getProductBySlug(String slug) {
         Product product = productRepository.findBySlug(slug)
             .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không tồn tại"));
@@ -195,22 +221,26 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
         return productRepository.findByActiveIsTrue(pageable).map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProductsAdmin(Pageable pageable) {
         // Admin có thể xem tất cả sản phẩm (bao gồm inactive)
         return productRepository.findAll(pageable).map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductDTO> searchProducts(String keyword, Pageable pageable) {
         return productRepository.searchProducts(keyword, pageable).map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductDTO> filterProducts(Long categoryId, Long brandId, 
                                            BigDecimal minPrice, BigDecimal maxPrice, 
                                            Pageable pageable) {
@@ -219,18 +249,21 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductDTO> getProductsByCategory(Long categoryId, Pageable pageable) {
         return productRepository.findByCategoryIdAndActiveIsTrue(categoryId, pageable)
             .map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductDTO> getProductsByBrand(Long brandId, Pageable pageable) {
         return productRepository.findByBrandIdAndActiveIsTrue(brandId, pageable)
             .map(this::mapToDTO);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> getFeaturedProducts() {
         return productRepository.findByFeaturedIsTrueAndActiveIsTrue().stream()
             .map(this::mapToDTO)
@@ -238,6 +271,7 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> getBestSellingProducts(int limit) {
         return productRepository.findBestSelling(Pageable.ofSize(limit)).stream()
             .map(this::mapToDTO)
@@ -245,6 +279,7 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> getNewProducts(int limit) {
         return productRepository.findNewProducts(Pageable.ofSize(limit)).stream()
             .map(this::mapToDTO)
@@ -1,24 +1,31 @@
 package com.petshop.service.impl;
 
 import com.petshop.dto.request.ReviewRequest;
+import com.petshop.dto.response.AwaitingReviewDTO;
 import com.petshop.dto.response.ReviewDTO;
+import com.petshop.dto.response.ReviewSummaryDTO;
 import com.petshop.entity.*;
 import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.*;
-import com.petshop.security.UserPrincipal;
+import com.petshop.security.CurrentUserContext;
 import com.petshop.service.ReviewService;
+import com.petshop.service.support.ProductRatingAggregator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,13 +34,15 @@ public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final BookingRepository bookingRepository;
-    private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final UserPurchaseRepository userPurchaseRepository;
+    private final CurrentUserContext currentUser;
+    private final ProductRatingAggregator ratingAggregator;
+    private final ProductRatingStatsRepository ratingStatsRepository;
     
     @Override
     @Transactional
     public ReviewDTO createReview(ReviewRequest request) {
-        User user = getCurrentUser();
+        User user = currentUser.getUser();
         
         Review review = Review.builder()
             .user(user)
@@ -47,16 +56,11 @@ public class ReviewServiceImpl implements ReviewService {
             Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm không tồn tại"));
             
-            // Check if user has purchased this product
-            boolean hasPurchased = orderRepository.existsByUserIdAndProductId(
-                user.getId(), product.getId());
-            
-            if (!hasPurchased) {
-                throw new BadRequestException("Bạn chưa mua sản phẩm này");
-            }
-            
-            // Check if already reviewed
-            if (reviewRepository.existsByUserIdAndProductId(user.getId(), product.getId())) {
+            // Check purchased & not yet reviewed bằng một câu UPDATE trên chỉ mục user_purchases
+            if (userPurchaseRepository.markReviewed(user.getId(), product.getId()) == 0) {
+                if (!userPurchaseRepository.existsByUserIdAndProductId(user.getId(), product.getId())) {
+                    throw new BadRequestException("Bạn chưa mua sản phẩm này");
+                }
                 throw new BadRequestException("Bạn đã đánh giá sản phẩm này");
             }
             
@@ -64,7 +68,7 @@ public class ReviewServiceImpl implements ReviewService {
             review = reviewRepository.save(review);
             
             // Update product rating
-            updateProductRating(product);
+            ratingAggregator.added(review);
             
         } else if (request.getBookingId() != null) {
             Booking booking = bookingRepository.findById(request.getBookingId())
@@ -93,17 +97,57 @@ public class ReviewServiceImpl implements ReviewService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<ReviewDTO> getProductReviews(Long productId, Pageable pageable) {
-        return reviewRepository.findByProductIdAndVisibleAndHiddenOrderByCreatedAtDesc(
-                productId, true, false, pageable)
-            .map(this::mapToDTO);
+        return mapPage(reviewRepository.findByProductIdAndVisibleAndHiddenOrderByCreatedAtDesc(
+                productId, true, false, pageable));
     }
     
     @Override
+    @Transactional(readOnly = true)
+    public List<AwaitingReviewDTO> getProductsAwaitingReview() {
+        // row: [productId, name, slug, primaryImageUrl, purchasedAt]
+        return userPurchaseRepository.findAwaitingReview(currentUser.getUserId()).stream()
+            .map(row -> AwaitingReviewDTO.builder()
+                .productId((Long) row[0])
+                .productName((String) row[1])
+                .productSlug((String) row[2])
+                .productImage((String) row[3])
+                .purchasedAt((LocalDateTime) row[4])
+                .build())
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public ReviewSummaryDTO getProductReviewSummary(Long productId) {
+        ProductRatingStats stats = ratingStatsRepository.findById(productId)
+            .orElseGet(() -> ProductRatingStats.builder().productId(productId).build());
+        
+        Map<Integer, Integer> distribution = new LinkedHashMap<>();
+        distribution.put(5, stats.getStar5Count());
+        distribution.put(4, stats.getStar4Count());
+        distribution.put(3, stats.getStar3Count());
+        distribution.put(2, stats.getStar2Count());
+        distribution.put(1, stats.getStar1Count());
+        
+        BigDecimal average = stats.getRatingCount() > 0
+            ? BigDecimal.valueOf(stats.getRatingSum())
+                .divide(BigDecimal.valueOf(stats.getRatingCount()), 1, RoundingMode.HALF_UP)
+            : BigDecimal.ZERO;
+        
+        return ReviewSummaryDTO.builder()
+            .productId(productId)
+            .averageRating(average)
+            .totalReviews(stats.getRatingCount())
+            .distribution(distribution)
+            .build();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
     public Page<ReviewDTO> getMyReviews(Pageable pageable) {
-        User user = getCurrentUser();
-        return reviewRepository.findByUserIdOrderByCreatedAtDesc(user.getId(), pageable)
-            .map(this::mapToDTO);
+        return mapPage(reviewRepository.findByUserIdOrderByCreatedAtDesc(currentUser.getUserId(), pageable));
     }
     
     @Override
@@ -125,12 +169,13 @@ public class ReviewServiceImpl implements ReviewService {
         Review review = reviewRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Đánh giá không tồn tại"));
         
-        review.setHidden(true);
-        review = reviewRepository.save(review);
-        
-        // Update product rating if applicable
-        if (review.getProduct() != null) {
-            updateProductRating(review.getProduct());
+        boolean wasCounted = ProductRatingAggregator.isCounted(review);
+        if (reviewRepository.updateHidden(id, true) > 0) {
+            review.setHidden(true);
+            // Update product rating if applicable
+            if (wasCounted) {
+                ratingAggregator.removed(review);
+            }
         }
         
         return mapToDTO(review);
@@ -142,12 +187,12 @@ public class ReviewServiceImpl implements ReviewService {
         Review review = reviewRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Đánh giá không tồn tại"));
         
-        review.setHidden(false);
-        review = reviewRepository.save(review);
-        
-        // Update product rating if applicable
-        if (review.getProduct() != null) {
-            updateProductRating(review.getProduct());
+        if (reviewRepository.updateHidden(id, false) > 0) {
+            review.setHidden(false);
+            // Update product rating if applicable
+            if (ProductRatingAggregator.isCounted(review)) {
+                ratingAggregator.added(review);
+            }
         }
         
         return mapToDTO(review);
@@ -159,38 +204,43 @@ public class ReviewServiceImpl implements ReviewService {
         Review review = reviewRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Đánh giá không tồn tại"));
         
-        Product product = review.getProduct();
+        boolean wasCounted = ProductRatingAggregator.isCounted(review);
         reviewRepository.delete(review);
+        reviewRepository.flush();
+        
+        // Cho phép user đánh giá lại
+        if (review.getProduct() != null) {
+            userPurchaseRepository.markUnreviewed(review.getUser().getId(), review.getProduct().getId());
+        }
         
         // Update product rating if applicable
-        if (product != null) {
-            updateProductRating(product);
+        if (wasCounted) {
+            ratingAggregator.removed(review);
         }
     }
     
-    private void updateProductRating(Product product) {
-        BigDecimal avgRating = reviewRepository.getAverageRatingByProduct(product.getId());
-        Long count = reviewRepository.countByProduct(product.getId());
-        
-        product.setAverageRating(avgRating != null ? 
-            avgRating.setScale(1, RoundingMode.HALF_UP) : BigDecimal.ZERO);
-        product.setReviewCount(count != null ? count.intValue() : 0);
-        
-        productRepository.save(product);
+    @Override
+    public int reconcileRatings() {
+        return ratingAggregator.reconcileAll();
     }
     
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new BadRequestException("Chưa đăng nhập");
+    // Ảnh của cả trang được nạp bằng một truy vấn
+    private Page<ReviewDTO> mapPage(Page<Review> page) {
+        Map<Long, List<String>> images = new HashMap<>();
+        if (page.hasContent()) {
+            List<Long> ids = page.getContent().stream().map(Review::getId).collect(Collectors.toList());
+            for (Object[] row : reviewRepository.findImagesByReviewIds(ids)) {
+                images.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
         }
-        
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return userRepository.findById(userPrincipal.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return page.map(review -> mapToDTO(review, images.getOrDefault(review.getId(), List.of())));
     }
     
     private ReviewDTO mapToDTO(Review review) {
+        return mapToDTO(review, review.getImages());
+    }
+    
+    private ReviewDTO mapToDTO(Review review, List<String> images) {
         return ReviewDTO.builder()
             .id(review.getId())
             .userName(review.getUser().getFullName())
@@ -200,7 +250,7 @@ public class ReviewServiceImpl implements ReviewService {
             .bookingId(review.getBooking() != null ? review.getBooking().getId() : null)
             .rating(review.getRating())
             .content(review.getContent())
-            .images(review.getImages())
+            .images(images)
             .shopReply(review.getShopReply())
             .visible(review.getVisible())
             .createdAt(review.getCreatedAt())
@@ -2,7 +2,9 @@ package com.petshop.service.impl;
 
 import com.petshop.dto.request.SpaServiceRequest;
 import com.petshop.dto.response.ServicePricingDTO;
+import com.petshop.dto.response.ServiceQuoteDTO;
 import com.petshop.dto.response.SpaServiceDTO;
+import com.petshop.entity.Pet;
 import com.petshop.entity.ServicePricing;
 import com.petshop.entity.SpaService;
 import com.petshop.exception.BadRequestException;
@@ -10,11 +12,13 @@ import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.ServicePricingRepository;
 import com.petshop.repository.SpaServiceRepository;
 import com.petshop.service.SpaServiceService;
+import com.petshop.service.support.ServicePriceIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +28,7 @@ public class SpaServiceServiceImpl implements SpaServiceService {
     
     private final SpaServiceRepository spaServiceRepository;
     private final ServicePricingRepository servicePricingRepository;
+    private final ServicePriceIndex servicePriceIndex;
     
     @Override
     @Transactional
@@ -59,7 +64,8 @@ public class SpaServiceServiceImpl implements SpaServiceService {
             service.getPricingList().addAll(pricings);
         }
         
-        return mapToDTO(service);
+        servicePriceIndex.rebuildAfterCommit();
+        return mapToDTO(service, mapPricingEntities(service.getPricingList()));
     }
     
     @Override
@@ -99,7 +105,8 @@ public class SpaServiceServiceImpl implements SpaServiceService {
         }
         
         service = spaServiceRepository.save(service);
-        return mapToDTO(service);
+        servicePriceIndex.rebuildAfterCommit();
+        return mapToDTO(service, mapPricingEntities(service.getPricingList()));
     }
     
     @Override
@@ -111,9 +118,11 @@ public class SpaServiceServiceImpl implements SpaServiceService {
         // Soft delete
         service.setActive(false);
         spaServiceRepository.save(service);
+        servicePriceIndex.rebuildAfterCommit();
     }
     
     @Override
+    @Transactional(readOnly = true)
     public SpaServiceDTO getServiceById(Long id) {
         SpaService service = spaServiceRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Dịch vụ không tồn tại"));
@@ -121,6 +130,7 @@ public class SpaServiceServiceImpl implements SpaServiceService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public SpaServiceDTO getServiceBySlug(String slug) {
         SpaService service = spaServiceRepository.findBySlug(slug)
             .orElseThrow(() -> new ResourceNotFoundException("Dịch vụ không tồn tại"));
@@ -128,6 +138,7 @@ public class SpaServiceServiceImpl implements SpaServiceService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<SpaServiceDTO> getAllServices() {
         return spaServiceRepository.findAll().stream()
             .map(this::mapToDTO)
@@ -135,25 +146,73 @@ public class SpaServiceServiceImpl implements SpaServiceService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<SpaServiceDTO> getActiveServices() {
         return spaServiceRepository.findByActiveOrderByDisplayOrderAsc(true).stream()
             .map(this::mapToDTO)
             .collect(Collectors.toList());
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public ServiceQuoteDTO getQuote(Long serviceId, Pet.PetType petType, Double weight) {
+        ServicePriceIndex.ServicePrices prices = servicePriceIndex.get(serviceId)
+            .orElseThrow(() -> new ResourceNotFoundException("Dịch vụ không tồn tại"));
+        
+        if (!prices.isActive()) {
+            throw new BadRequestException("Dịch vụ không còn hoạt động");
+        }
+        
+        ServicePriceIndex.PriceTier tier = prices.findTier(petType, weight)
+            .orElseThrow(() -> new BadRequestException("Dịch vụ chưa có bảng giá"));
+        
+        return ServiceQuoteDTO.builder()
+            .serviceId(prices.getServiceId())
+            .serviceName(prices.getName())
+            .duration(prices.getDuration())
+            .petType(petType)
+            .weight(weight)
+            .pricingId(tier.id())
+            .minWeight(tier.minWeight())
+            .maxWeight(tier.maxWeight())
+            .price(tier.price())
+            .build();
+    }
+    
+    // Bảng giá lấy từ ServicePriceIndex, tránh nạp pricingList cho từng dịch vụ
     private SpaServiceDTO mapToDTO(SpaService service) {
-        List<ServicePricingDTO> pricingDTOs = new ArrayList<>();
-        if (service.getPricingList() != null) {
-            pricingDTOs = service.getPricingList().stream()
-                .map(p -> ServicePricingDTO.builder()
-                    .id(p.getId())
-                    .tierName(p.getPetType() != null ? p.getPetType().name() : null)
-                    .minWeight(p.getMinWeight())
-                    .maxWeight(p.getMaxWeight())
-                    .price(p.getPrice())
+        List<ServicePricingDTO> pricingDTOs = servicePriceIndex.get(service.getId())
+            .map(prices -> prices.getTiers().stream()
+                .map(tier -> ServicePricingDTO.builder()
+                    .id(tier.id())
+                    .tierName(tier.petType() != null ? tier.petType().name() : null)
+                    .minWeight(tier.minWeight())
+                    .maxWeight(tier.maxWeight())
+                    .price(tier.price())
                     .build())
-                .collect(Collectors.toList());
-        }
+                .collect(Collectors.toList()))
+            .orElseGet(() -> mapPricingEntities(service.getPricingList()));
+        return mapToDTO(service, pricingDTOs);
+    }
+    
+    private List<ServicePricingDTO> mapPricingEntities(List<ServicePricing> pricingList) {
+        return pricingList.stream()
+            .sorted(Comparator.comparing(ServicePricing::getMinWeight))
+            .map(p -> ServicePricingDTO.builder()
+                .id(p.getId())
+                .tierName(p.getPetType() != null ? p.getPetType().name() : null)
+                .minWeight(p.getMinWeight())
+                .maxWeight(p.getMaxWeight())
+                .price(p.getPrice())
+                .build())
+            .collect(Collectors.toList());
+    }
+    
+    private SpaServiceDTO mapToDTO(SpaService service, List<ServicePricingDTO> pricingDTOs) {
+        BigDecimal minPrice = pricingDTOs.stream().map(ServicePricingDTO::getPrice)
+            .min(BigDecimal::compareTo).orElse(null);
+        BigDecimal maxPrice = pricingDTOs.stream().map(ServicePricingDTO::getPrice)
+            .max(BigDecimal::compareTo).orElse(null);
         
         return SpaServiceDTO.builder()
             .id(service.getId())
@@ -166,6 +225,8 @@ public class SpaServiceServiceImpl implements SpaServiceService {
             .displayOrder(service.getDisplayOrder())
             .active(service.getActive())
             .pricingList(pricingDTOs)
+            .minPrice(minPrice)
+            .maxPrice(maxPrice)
             .createdAt(service.getCreatedAt())
             .build();
     }
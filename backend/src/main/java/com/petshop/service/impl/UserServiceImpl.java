@@ -0,0 +1,81 @@
+package com.petshop.service.impl;
+
+import com.petshop.dto.response.UserDTO;
+import com.petshop.entity.User;
+import com.petshop.exception.BadRequestException;
+import com.petshop.exception.ResourceNotFoundException;
+import com.petshop.repository.UserRepository;
+import com.petshop.security.CurrentUserContext;
+import com.petshop.security.UserPrincipalCache;
+import com.petshop.service.UserService;
+import com.petshop.service.support.StaffScheduleIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class UserServiceImpl implements UserService {
+    
+    private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final CurrentUserContext currentUser;
+    private final StaffScheduleIndex staffScheduleIndex;
+    
+    @Override
+    @Transactional
+    public UserDTO updateActive(Long id, boolean active) {
+        User user = getManagedUser(id);
+        user.setActive(active);
+        user = userRepository.save(user);
+        
+        // Token cũ mất hiệu lực ngay, không chờ hết TTL của cache
+        userPrincipalCache.evictAfterCommit(user.getId());
+        if (user.getRole() == User.Role.STAFF) {
+            staffScheduleIndex.refreshStaffAfterCommit();
+        }
+        return mapToDTO(user);
+    }
+    
+    @Override
+    @Transactional
+    public UserDTO updateRole(Long id, User.Role role) {
+        if (role == null) {
+            throw new BadRequestException("Quyền không hợp lệ");
+        }
+        User user = getManagedUser(id);
+        User.Role previous = user.getRole();
+        user.setRole(role);
+        user = userRepository.save(user);
+        
+        userPrincipalCache.evictAfterCommit(user.getId());
+        // Thêm / bớt ghế trong lịch spa
+        if (previous == User.Role.STAFF || role == User.Role.STAFF) {
+            staffScheduleIndex.refreshStaffAfterCommit();
+        }
+        return mapToDTO(user);
+    }
+    
+    private User getManagedUser(Long id) {
+        if (id.equals(currentUser.getUserId())) {
+            throw new BadRequestException("Không thể thay đổi tài khoản của chính mình");
+        }
+        return userRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Người dùng không tồn tại"));
+    }
+    
+    private UserDTO mapToDTO(User user) {
+        return UserDTO.builder()
+            .id(user.getId())
+            .username(user.getEmail()) // use email as username
+            .email(user.getEmail())
+            .fullName(user.getFullName())
+            .phone(user.getPhone())
+            .address(user.getAddress())
+            .avatarUrl(user.getAvatar())
+            .role(user.getRole())
+            .active(user.isActive())
+            .createdAt(user.getCreatedAt())
+            .build();
+    }
+}
@@ -7,6 +7,7 @@ import com.petshop.exception.BadRequestException;
 import com.petshop.exception.ResourceNotFoundException;
 import com.petshop.repository.VoucherRepository;
 import com.petshop.service.VoucherService;
+import com.petshop.service.support.VoucherIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -14,7 +15,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,6 +23,7 @@ import java.util.stream.Collectors;
 public class VoucherServiceImpl implements VoucherService {
     
     private final VoucherRepository voucherRepository;
+    private final VoucherIndex voucherIndex;
     
     @Override
     @Transactional
@@ -48,6 +49,7 @@ public class VoucherServiceImpl implements VoucherService {
             .build();
         
         voucher = voucherRepository.save(voucher);
+        voucherIndex.rebuildAfterCommit();
         return mapToDTO(voucher);
     }
     
@@ -78,6 +80,7 @@ public class VoucherServiceImpl implements VoucherService {
         }
         
         voucher = voucherRepository.save(voucher);
+        voucherIndex.rebuildAfterCommit();
         return mapToDTO(voucher);
     }
     
@@ -90,9 +93,11 @@ public class VoucherServiceImpl implements VoucherService {
         // Soft delete
         voucher.setActive(false);
         voucherRepository.save(voucher);
+        voucherIndex.rebuildAfterCommit();
     }
     
     @Override
+    @Transactional(readOnly = true)
     public VoucherDTO getVoucherById(Long id) {
         Voucher voucher = voucherRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Voucher không tồn tại"));
@@ -100,15 +105,16 @@ public class VoucherServiceImpl implements VoucherService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public VoucherDTO getVoucherByCode(String code) {
-        Voucher voucher = voucherRepository.findByCode(code.toUpperCase())
+        Voucher voucher = voucherIndex.findByCode(code)
             .orElseThrow(() -> new ResourceNotFoundException("Voucher không tồn tại"));
         return mapToDTO(voucher);
     }
     
     @Override
     public BigDecimal applyVoucher(String code, BigDecimal orderAmount) {
-        Voucher voucher = voucherRepository.findByCode(code.toUpperCase())
+        Voucher voucher = voucherIndex.findByCode(code)
             .orElseThrow(() -> new BadRequestException("Voucher không tồn tại"));
         
         // Validate using helper method
@@ -121,14 +127,15 @@ public class VoucherServiceImpl implements VoucherService {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<VoucherDTO> getActiveVouchers() {
-        LocalDateTime now = LocalDateTime.now();
-        return voucherRepository.findActiveVouchers(now).stream()
+        return voucherIndex.getActiveVouchers().stream()
             .map(this::mapToDTO)
             .collect(Collectors.toList());
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<VoucherDTO> getAllVouchers(Pageable pageable) {
         return voucherRepository.findAll(pageable).map(this::mapToDTO);
     }
@@ -0,0 +1,509 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.CartItem;
+import com.petshop.entity.ProductVariant;
+import com.petshop.entity.User;
+import com.petshop.repository.CartItemRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Giỏ hàng đang hoạt động được giữ trong bộ nhớ.
+// Dòng mới được INSERT ngay (để có id ổn định cho API), còn thay đổi số lượng
+// và xóa dòng được gom lại và ghi xuống DB theo lô (write-behind).
+// Mỗi lần ghi giỏ xuống DB đều tăng cart_versions của user; trước mỗi thao tác version trong DB
+// được so với bản trong bộ nhớ, bản cũ (node khác đã ghi) được nạp lại trước khi đọc / sửa.
+// Hai node cùng sửa một dòng trong cùng chu kỳ flush thì lần ghi sau thắng.
+@Component
+@Slf4j
+public class CartStore {
+
+    // Giỏ trong bộ nhớ không còn khớp version nào trong DB
+    private static final long STALE = -1L;
+
+    private final CartItemRepository cartItemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${petshop.cart.max-active-carts:10000}")
+    private int maxActiveCarts;
+
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    public CartStore(CartItemRepository cartItemRepository, JdbcTemplate jdbcTemplate,
+                     PlatformTransactionManager transactionManager) {
+        this.cartItemRepository = cartItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Các dòng trong giỏ, mới nhất trước
+    public List<CartLine> getLines(Long userId) {
+        return withCart(userId, cart -> cart.lines.values().stream()
+            .map(CartLine::copy)
+            .sorted(Comparator.comparing(CartLine::getCreatedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())))
+            .collect(Collectors.toList()));
+    }
+
+    public Optional<CartLine> findByVariant(Long userId, Long variantId) {
+        return withCart(userId, cart -> Optional.ofNullable(cart.lines.get(variantId)).map(CartLine::copy));
+    }
+
+    public Optional<CartLine> findById(Long userId, Long itemId) {
+        return withCart(userId, cart -> cart.findById(itemId).map(CartLine::copy));
+    }
+
+    public int count(Long userId) {
+        return withCart(userId, cart -> cart.lines.size());
+    }
+
+    // Thêm dòng mới hoặc cộng dồn số lượng. Phải được gọi trong transaction.
+    public CartLine add(Long userId, User userRef, ProductVariant variant, int quantity) {
+        Optional<CartLine> reused = withCart(userId, cart -> {
+            CartLine existing = cart.lines.get(variant.getId());
+            if (existing != null) {
+                existing.quantity += quantity;
+                markDirty(userId, cart, existing);
+                return Optional.of(existing.copy());
+            }
+
+            // Dòng vừa xóa nhưng chưa ghi xuống DB: dùng lại bản ghi cũ
+            CartLine removed = cart.removed.remove(variant.getId());
+            if (removed != null) {
+                removed.quantity = quantity;
+                removed.createdAt = LocalDateTime.now();
+                cart.lines.put(variant.getId(), removed);
+                markDirty(userId, cart, removed);
+                return Optional.of(removed.copy());
+            }
+            return Optional.<CartLine>empty();
+        });
+        if (reused.isPresent()) {
+            return reused.get();
+        }
+
+        CartItem saved = cartItemRepository.save(CartItem.builder()
+            .user(userRef)
+            .variant(variant)
+            .quantity(quantity)
+            .build());
+        CartLine line = new CartLine(saved.getId(), variant.getId(), quantity,
+            saved.getCreatedAt() != null ? saved.getCreatedAt() : LocalDateTime.now());
+        long version = bumpVersion(userId);
+
+        // Chỉ đưa vào bộ nhớ khi INSERT đã commit. Giỏ có thể đã bị bỏ và nạp lại
+        // trong lúc chờ, nên luôn lấy bản đang dùng (chưa có trong bộ nhớ thì lần nạp sau đọc từ DB)
+        afterCommit(() -> {
+            UserCart cart = carts.get(userId);
+            if (cart != null) {
+                synchronized (cart) {
+                    if (!cart.evicted) {
+                        cart.lines.putIfAbsent(line.variantId, line);
+                        adopt(cart, version);
+                    }
+                }
+            }
+        });
+        return line.copy();
+    }
+
+    public Optional<CartLine> updateQuantity(Long userId, Long itemId, int quantity) {
+        return withCart(userId, cart -> {
+            Optional<CartLine> line = cart.findById(itemId);
+            line.ifPresent(l -> {
+                l.quantity = quantity;
+                markDirty(userId, cart, l);
+            });
+            return line.map(CartLine::copy);
+        });
+    }
+
+    public boolean remove(Long userId, Long itemId) {
+        return withCart(userId, cart -> {
+            Optional<CartLine> line = cart.findById(itemId);
+            line.ifPresent(l -> {
+                cart.lines.remove(l.variantId);
+                cart.dirtyLines.remove(l.id);
+                cart.removed.put(l.variantId, l);
+                dirtyUsers.add(userId);
+            });
+            return line.isPresent();
+        });
+    }
+
+    // Xóa toàn bộ giỏ ngay trong transaction hiện tại (người dùng bấm xóa giỏ)
+    public void clear(Long userId) {
+        cartItemRepository.deleteByUserId(userId);
+        bumpVersion(userId);
+        afterCommit(() -> {
+            UserCart cart = carts.get(userId);
+            if (cart != null) {
+                synchronized (cart) {
+                    evict(userId, cart);
+                }
+            }
+            dirtyUsers.remove(userId);
+        });
+    }
+
+    // Xóa các dòng đã được đặt hàng, trong transaction đặt hàng hiện tại.
+    // Chỉ đụng tới các id đã đặt; transaction rollback thì trả các dòng lại vào giỏ.
+    public void removeOrdered(Long userId, Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        List<CartLine> ordered = withCart(userId, cart -> {
+            List<CartLine> lines = cart.lines.values().stream()
+                .filter(l -> itemIds.contains(l.id))
+                .collect(Collectors.toList());
+            lines.forEach(l -> {
+                cart.lines.remove(l.variantId);
+                cart.dirtyLines.remove(l.id);
+            });
+            cart.removed.values().removeIf(l -> itemIds.contains(l.id));
+            return lines;
+        });
+        cartItemRepository.deleteAllByIdInBatch(itemIds);
+        long version = bumpVersion(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    UserCart cart = carts.get(userId);
+                    if (cart == null) {
+                        return;
+                    }
+                    synchronized (cart) {
+                        if (status == STATUS_COMMITTED) {
+                            adopt(cart, version);
+                        } else if (!cart.evicted) {
+                            ordered.forEach(l -> cart.lines.putIfAbsent(l.variantId, l));
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    // Gộp giỏ hàng của khách vào giỏ của user bằng một lệnh upsert theo lô
+    // (cộng dồn số lượng trên khóa duy nhất user_id + variant_id, tối đa bằng tồn kho)
+    public void merge(Long userId, List<MergeLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = lines.stream()
+            .map(l -> new Object[]{userId, l.variantId(), l.quantity(), now, now, l.maxQuantity()})
+            .collect(Collectors.toList());
+
+        // Thay đổi đang chờ được lấy ra dưới khóa của giỏ (trong flushCart) rồi ghi cùng lệnh gộp,
+        // ngoài khóa. Xong thì bỏ giỏ để lần đọc sau nạp lại từ DB; giỏ có thay đổi mới
+        // chen vào trong lúc ghi thì được đánh dấu cũ và nạp lại sau khi các thay đổi đó được ghi
+        UserCart cart = carts.get(userId);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (cart != null) {
+                flushCart(userId, cart);
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO cart_items (user_id, variant_id, quantity, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE quantity = LEAST(quantity + VALUES(quantity), ?), " +
+                "updated_at = VALUES(updated_at)", args);
+            bumpVersion(userId);
+        });
+        if (cart != null) {
+            synchronized (cart) {
+                if (cart.hasPendingChanges()) {
+                    cart.version = STALE;
+                } else {
+                    evict(userId, cart);
+                }
+            }
+        }
+    }
+
+    // Ghi các thay đổi đang chờ của một user xuống DB (gọi trước khi thanh toán)
+    public void flush(Long userId) {
+        UserCart cart = carts.get(userId);
+        if (cart != null) {
+            flushCart(userId, cart);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${petshop.cart.flush-interval-ms:2000}")
+    public void flushDirty() {
+        for (Long userId : new ArrayList<>(dirtyUsers)) {
+            dirtyUsers.remove(userId);
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                continue;
+            }
+            try {
+                flushCart(userId, cart);
+            } catch (Exception e) {
+                log.error("Could not flush cart of user {}", userId, e);
+            }
+        }
+        if (carts.size() > maxActiveCarts) {
+            evictIdleCarts();
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushDirty();
+    }
+
+    private void flushCart(Long userId, UserCart cart) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<CartLine> updatedLines;
+        List<CartLine> deletedLines;
+        synchronized (cart) {
+            updatedLines = new ArrayList<>(cart.dirtyLines.values());
+            deletedLines = new ArrayList<>(cart.removed.values());
+            cart.dirtyLines.clear();
+            cart.removed.clear();
+        }
+        if (updatedLines.isEmpty() && deletedLines.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        synchronized (cart) {
+            updatedLines.forEach(l -> updates.add(new Object[]{l.quantity, now, l.id}));
+        }
+        deletedLines.forEach(l -> deletes.add(new Object[]{l.id}));
+
+        long version;
+        try {
+            version = transactionTemplate.execute(status -> {
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE cart_items SET quantity = ?, updated_at = ? WHERE id = ?", updates);
+                }
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE id = ?", deletes);
+                }
+                return bumpVersion(userId);
+            });
+        } catch (RuntimeException e) {
+            restorePending(userId, cart, updatedLines, deletedLines);
+            throw e;
+        }
+        afterCommit(() -> adopt(cart, version));
+
+        // Ghi trong transaction bên ngoài (thanh toán): rollback thì phải ghi lại,
+        // nên giỏ không được bỏ khỏi bộ nhớ trước khi transaction đó kết thúc
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (cart) {
+                cart.pendingFlushes++;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (cart) {
+                        cart.pendingFlushes--;
+                    }
+                    if (status != STATUS_COMMITTED) {
+                        restorePending(userId, cart, updatedLines, deletedLines);
+                    }
+                }
+            });
+        }
+    }
+
+    // Trả lại các thay đổi để lần sau ghi tiếp
+    private void restorePending(Long userId, UserCart cart, List<CartLine> updatedLines, List<CartLine> deletedLines) {
+        synchronized (cart) {
+            updatedLines.forEach(l -> {
+                if (cart.lines.get(l.variantId) == l) {
+                    cart.dirtyLines.putIfAbsent(l.id, l);
+                }
+            });
+            deletedLines.forEach(l -> {
+                if (!cart.lines.containsKey(l.variantId)) {
+                    cart.removed.putIfAbsent(l.variantId, l);
+                }
+            });
+        }
+        dirtyUsers.add(userId);
+    }
+
+    private void markDirty(Long userId, UserCart cart, CartLine line) {
+        cart.dirtyLines.put(line.id, line);
+        dirtyUsers.add(userId);
+    }
+
+    // Chạy action trên giỏ đang dùng, giữ khóa của giỏ.
+    // Giỏ vừa bị bỏ khỏi bộ nhớ thì lấy (nạp) lại, để không thay đổi nào rơi vào bản đã bỏ.
+    // Giỏ cũ hơn DB (node khác đã ghi) mà không còn thay đổi chưa ghi thì bỏ và nạp lại;
+    // còn thay đổi chưa ghi thì dùng tiếp, lần flush sau sẽ đánh dấu cũ để nạp lại.
+    private <T> T withCart(Long userId, Function<UserCart, T> action) {
+        long version = currentVersion(userId);
+        while (true) {
+            UserCart cart = getCart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (cart.version < version && !cart.hasPendingChanges()) {
+                    evict(userId, cart);
+                    continue;
+                }
+                return action.apply(cart);
+            }
+        }
+    }
+
+    // Nạp ngoài map (không truy vấn DB trong computeIfAbsent); hai luồng cùng nạp thì giữ bản vào trước
+    private UserCart getCart(Long userId) {
+        UserCart cart = carts.get(userId);
+        if (cart == null) {
+            UserCart loaded = load(userId);
+            cart = carts.putIfAbsent(userId, loaded);
+            if (cart == null) {
+                cart = loaded;
+            }
+        }
+        cart.lastAccess = System.nanoTime();
+        return cart;
+    }
+
+    // Đọc version trước các dòng: có ghi chen vào giữa thì dòng mới hơn version, lần sau nạp lại
+    private UserCart load(Long userId) {
+        UserCart cart = new UserCart();
+        cart.version = currentVersion(userId);
+        for (CartItem item : cartItemRepository.findByUserIdOrderByCreatedAtDesc(userId)) {
+            Long variantId = item.getVariant().getId();
+            cart.lines.put(variantId, new CartLine(item.getId(), variantId, item.getQuantity(), item.getCreatedAt()));
+        }
+        return cart;
+    }
+
+    // Bỏ bớt giỏ ít dùng nhất cho tới 90% giới hạn; giỏ còn thay đổi chưa ghi thì ghi trước.
+    // Chỉ chạy trên luồng flush định kỳ (ngoài mọi transaction của request).
+    private void evictIdleCarts() {
+        int toEvict = carts.size() - maxActiveCarts + Math.max(1, maxActiveCarts / 10);
+        List<Map.Entry<Long, UserCart>> idle = carts.entrySet().stream()
+            .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+            .limit(toEvict)
+            .collect(Collectors.toList());
+        for (Map.Entry<Long, UserCart> entry : idle) {
+            try {
+                flushCart(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                log.error("Could not flush cart of user {} before eviction", entry.getKey(), e);
+                continue;
+            }
+            synchronized (entry.getValue()) {
+                // Có thay đổi mới trong lúc ghi: giữ lại, lần sau tính tiếp
+                if (!entry.getValue().hasPendingChanges()) {
+                    evict(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private long currentVersion(Long userId) {
+        List<Long> versions = jdbcTemplate.queryForList(
+            "SELECT version FROM cart_versions WHERE user_id = ?", Long.class, userId);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    // Tăng version giỏ trong transaction hiện tại (giữ khóa dòng tới khi commit), trả về version mới
+    private long bumpVersion(Long userId) {
+        jdbcTemplate.update("INSERT INTO cart_versions (user_id, version) VALUES (?, 1) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1", userId);
+        return jdbcTemplate.queryForObject("SELECT version FROM cart_versions WHERE user_id = ?", Long.class, userId);
+    }
+
+    // Lần ghi của node này đã commit: giỏ khớp version mới nếu trước đó khớp version ngay trước nó,
+    // ngược lại (node khác cũng vừa ghi) đánh dấu cũ để nạp lại
+    private void adopt(UserCart cart, long version) {
+        synchronized (cart) {
+            cart.version = cart.version == version - 1 ? version : STALE;
+        }
+    }
+
+    // Gọi khi đang giữ khóa của giỏ
+    private void evict(Long userId, UserCart cart) {
+        cart.evicted = true;
+        carts.remove(userId, cart);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class UserCart {
+        // variantId -> dòng
+        private final Map<Long, CartLine> lines = new LinkedHashMap<>();
+        // cartItemId -> dòng có số lượng chưa ghi
+        private final Map<Long, CartLine> dirtyLines = new HashMap<>();
+        // variantId -> dòng đã xóa nhưng chưa ghi
+        private final Map<Long, CartLine> removed = new HashMap<>();
+        // Số lần ghi nằm trong transaction chưa kết thúc (có thể phải ghi lại)
+        private int pendingFlushes;
+        // Đã bị bỏ khỏi bộ nhớ: không được sửa nữa
+        private boolean evicted;
+        // Version trong DB ứng với các dòng đang giữ (STALE nếu không còn khớp)
+        private long version;
+        private volatile long lastAccess = System.nanoTime();
+
+        boolean hasPendingChanges() {
+            return !dirtyLines.isEmpty() || !removed.isEmpty() || pendingFlushes > 0;
+        }
+
+        Optional<CartLine> findById(Long itemId) {
+            return lines.values().stream().filter(l -> l.id.equals(itemId)).findFirst();
+        }
+    }
+
+    public record MergeLine(Long variantId, int quantity, int maxQuantity) {
+    }
+
+    @Getter
+    public static final class CartLine {
+        private final Long id;
+        private final Long variantId;
+        private int quantity;
+        private LocalDateTime createdAt;
+
+        private CartLine(Long id, Long variantId, int quantity, LocalDateTime createdAt) {
+            this.id = id;
+            this.variantId = variantId;
+            this.quantity = quantity;
+            this.createdAt = createdAt;
+        }
+
+        private CartLine copy() {
+            return new CartLine(id, variantId, quantity, createdAt);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.petshop.service.support;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+// Sinh mã đơn hàng / booking kiểu Snowflake: 41 bit thời gian (ms) | 10 bit node | 12 bit sequence.
+// Không trùng giữa các node (khác node id), tăng dần trên mỗi node và sắp xếp theo thời gian.
+// Mã được viết bằng base-32 (Crockford) độ dài cố định nên thứ tự chuỗi = thứ tự thời gian.
+@Component
+@Slf4j
+public class CodeGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    // 63 bit cần 13 ký tự base-32
+    private static final int CODE_LENGTH = 13;
+    // Đồng hồ lùi quá mức này thì báo lỗi thay vì chờ
+    private static final long MAX_CLOCK_SKEW_MS = 5000;
+
+    // Mỗi node một giá trị khác nhau (application.yml mặc định 0 cho một node khi chạy dev)
+    @Value("${petshop.node-id:-1}")
+    private long configuredNodeId;
+
+    private long nodeId;
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    // Node id suy ra từ hash có thể trùng giữa hai node (mã trùng trên unique index),
+    // nên thiếu cấu hình thì dừng khởi động thay vì tự đoán
+    @PostConstruct
+    void init() {
+        if (configuredNodeId < 0 || configuredNodeId > MAX_NODE) {
+            throw new IllegalStateException("petshop.node-id (env PETSHOP_NODE_ID) must be set to a value "
+                + "between 0 and " + MAX_NODE + ", unique per running node");
+        }
+        nodeId = configuredNodeId;
+        log.info("Code generator node id {}", nodeId);
+    }
+
+    public String orderCode() {
+        return "ORD" + encode(nextId());
+    }
+
+    public String bookingCode() {
+        return "BK" + encode(nextId());
+    }
+
+    synchronized long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            if (lastTimestamp - now > MAX_CLOCK_SKEW_MS) {
+                throw new IllegalStateException("Clock moved backwards by " + (lastTimestamp - now) + " ms");
+            }
+            // Đồng hồ bị lùi ít: tiếp tục dùng mốc cũ để giữ tính tăng dần
+            if (now <= lastTimestamp) {
+                if (sequence < MAX_SEQUENCE) {
+                    sequence++;
+                    return compose(lastTimestamp);
+                }
+                // Hết sequence trong ms này: nhả khóa và chờ tới ms kế tiếp rồi tính lại
+                waitMillis(lastTimestamp + 1 - now);
+                continue;
+            }
+            sequence = 0;
+            lastTimestamp = now;
+            return compose(now);
+        }
+    }
+
+    private long compose(long timestamp) {
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    // Gọi khi đang giữ khóa: wait() nhả khóa trong lúc chờ, không quay vòng chiếm CPU
+    private void waitMillis(long millis) {
+        try {
+            wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next id", e);
+        }
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,116 @@
+package com.petshop.service.support;
+
+import com.petshop.dto.response.ConflictStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Chạy lại thao tác khi gặp xung đột ghi đồng thời (sai version, deadlock, hết thời gian chờ khóa).
+// Phải được gọi bên ngoài transaction để mỗi lần thử là một transaction mới
+// đọc lại dữ liệu mới nhất. Thời gian chờ tăng dần và được rải ngẫu nhiên (full jitter)
+// để các request va nhau không cùng thử lại một lúc.
+@Component
+@Slf4j
+public class ConflictRetry {
+
+    @Value("${petshop.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${petshop.retry.base-delay-ms:20}")
+    private long baseDelayMs;
+
+    @Value("${petshop.retry.max-delay-ms:500}")
+    private long maxDelayMs;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        Counters stats = counters.computeIfAbsent(operation, key -> new Counters());
+        stats.calls.increment();
+
+        // Đã ở trong transaction bên ngoài: thử lại ở đây cũng chỉ đọc lại dữ liệu cũ
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = action.get();
+                if (attempt > 1) {
+                    stats.recovered.increment();
+                }
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                stats.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    stats.exhausted.increment();
+                    log.warn("{} still conflicting after {} attempts", operation, attempt);
+                    throw e;
+                }
+                if (!sleep(backoff(attempt))) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public List<ConflictStatsDTO> getStats() {
+        return counters.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+            .map(entry -> {
+                Counters stats = entry.getValue();
+                long calls = stats.calls.sum();
+                long conflicts = stats.conflicts.sum();
+                return ConflictStatsDTO.builder()
+                    .operation(entry.getKey())
+                    .calls(calls)
+                    .conflicts(conflicts)
+                    .recovered(stats.recovered.sum())
+                    .exhausted(stats.exhausted.sum())
+                    .conflictRate(calls > 0 ? (double) conflicts / calls : 0.0)
+                    .build();
+            })
+            .collect(Collectors.toList());
+    }
+
+    // Chờ ngẫu nhiên trong [0, min(maxDelay, baseDelay * 2^(attempt - 1))]
+    private long backoff(int attempt) {
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder recovered = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+    }
+}
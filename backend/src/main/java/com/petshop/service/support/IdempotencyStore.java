@@ -0,0 +1,138 @@
+package com.petshop.service.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.petshop.entity.IdempotencyRecord;
+import com.petshop.exception.BadRequestException;
+import com.petshop.repository.IdempotencyRecordRepository;
+import com.petshop.security.CurrentUserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Lưu kết quả theo header Idempotency-Key để request gửi lại không tạo đơn / lịch hẹn trùng.
+// Key được ghi vào DB (duy nhất theo user + thao tác + key) trong cùng transaction với thao tác,
+// nên request gửi lại tới node khác hoặc sau khi khởi động lại vẫn nhận đúng kết quả cũ.
+// Request trùng đến khi request đầu chưa commit sẽ chờ trên khóa của dòng đó.
+// Lỗi không được lưu (dòng key rollback cùng thao tác): client có thể thử lại với cùng key.
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final CurrentUserContext currentUser;
+    private final ObjectMapper objectMapper;
+    // Map trong body được ghi theo thứ tự key để cùng nội dung luôn cho cùng fingerprint
+    private final ObjectMapper fingerprintMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${petshop.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    public IdempotencyStore(IdempotencyRecordRepository recordRepository, CurrentUserContext currentUser,
+                            ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.recordRepository = recordRepository;
+        this.currentUser = currentUser;
+        this.objectMapper = objectMapper;
+        this.fingerprintMapper = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Không có key thì chạy bình thường. Phải được gọi ngoài transaction (mỗi lần một transaction mới).
+    public <T> T execute(String operation, String key, Object request, Class<T> type, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > 100) {
+            throw new BadRequestException("Idempotency-Key quá dài");
+        }
+
+        Long userId = currentUser.getUserId();
+        byte[] fingerprint = fingerprint(request);
+        Optional<T> stored = replay(userId, operation, key, fingerprint, type);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                // Ghi key trước: request trùng chạy song song chờ ở đây tới khi request này kết thúc
+                IdempotencyRecord record = recordRepository.saveAndFlush(IdempotencyRecord.builder()
+                    .userId(userId)
+                    .operation(operation)
+                    .idempotencyKey(key)
+                    .fingerprint(fingerprint)
+                    .expiresAt(LocalDateTime.now().plusMinutes(ttlMinutes))
+                    .build());
+                T result = action.get();
+                record.setResponse(write(result));
+                return result;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Request cùng key đã commit trước (không thấy dòng thì là lỗi khác của thao tác)
+            return replay(userId, operation, key, fingerprint, type).orElseThrow(() -> e);
+        }
+    }
+
+    @Scheduled(cron = "0 40 3 * * *")
+    public void purgeExpired() {
+        int deleted = recordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> Optional<T> replay(Long userId, String operation, String key, byte[] fingerprint, Class<T> type) {
+        Optional<IdempotencyRecord> found = recordRepository
+            .findByUserIdAndOperationAndIdempotencyKey(userId, operation, key);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        IdempotencyRecord record = found.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (record.getExpiresAt().isBefore(now)) {
+            recordRepository.deleteIfExpired(record.getId(), now);
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(record.getFingerprint(), fingerprint)) {
+            throw new BadRequestException("Idempotency-Key đã được dùng cho một yêu cầu khác");
+        }
+        return Optional.of(read(record.getResponse(), type));
+    }
+
+    // SHA-256 của body đã serialize (hashCode 32 bit có thể trùng giữa hai body khác nhau)
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(fingerprintMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String write(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store idempotent response", e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent response", e);
+        }
+    }
+}
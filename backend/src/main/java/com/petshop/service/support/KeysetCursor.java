@@ -0,0 +1,70 @@
+package com.petshop.service.support;
+
+import com.petshop.dto.response.CursorPageDTO;
+import com.petshop.exception.BadRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Vị trí (createdAt, id) của bản ghi cuối trang, mã hóa thành chuỗi mờ cho client
+public record KeysetCursor(LocalDateTime createdAt, Long id) {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    // Trang đầu: mốc lớn hơn mọi bản ghi (DATETIME của MySQL tối đa năm 9999)
+    private static final KeysetCursor FIRST = new KeysetCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Lấy dư một bản ghi để biết còn trang sau hay không
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, clamp(size) + 1);
+    }
+
+    public static <E, D> CursorPageDTO<D> toPage(List<E> rows, int size, Function<E, KeysetCursor> keyOf,
+                                                 Function<E, D> mapper) {
+        return toPageBatch(rows, size, keyOf, pageRows -> pageRows.stream().map(mapper).collect(Collectors.toList()));
+    }
+
+    // Biến thể map cả trang một lần (để nạp dữ liệu con theo lô)
+    public static <E, D> CursorPageDTO<D> toPageBatch(List<E> rows, int size, Function<E, KeysetCursor> keyOf,
+                                                      Function<List<E>, List<D>> mapper) {
+        int pageSize = clamp(size);
+        boolean hasNext = rows.size() > pageSize;
+        List<E> pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+        return CursorPageDTO.<D>builder()
+            .content(mapper.apply(pageRows))
+            .size(pageSize)
+            .hasNext(hasNext)
+            .nextCursor(hasNext ? keyOf.apply(pageRows.get(pageRows.size() - 1)).encode() : null)
+            .build();
+    }
+
+    private static int clamp(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+}
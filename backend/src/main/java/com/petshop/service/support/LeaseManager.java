@@ -0,0 +1,38 @@
+package com.petshop.service.support;
+
+import com.petshop.repository.SchedulerLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.UUID;
+
+// Lease trong DB cho tác vụ định kỳ chạy trên nhiều node
+@Component
+@RequiredArgsConstructor
+public class LeaseManager {
+
+    private final SchedulerLeaseRepository leaseRepository;
+
+    // Định danh của node (tiến trình) hiện tại
+    private final String owner = hostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    // Giành hoặc gia hạn lease, false nếu node khác đang giữ
+    public boolean tryAcquire(String name, Duration ttl) {
+        leaseRepository.tryAcquire(name, owner, ttl.toSeconds());
+        return leaseRepository.countHeld(name, owner) > 0;
+    }
+
+    public void release(String name) {
+        leaseRepository.release(name, owner);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
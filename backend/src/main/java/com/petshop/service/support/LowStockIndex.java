@@ -0,0 +1,160 @@
+package com.petshop.service.support;
+
+import com.petshop.dto.response.StockAlertDTO;
+import com.petshop.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Các biến thể đang sắp hết / hết hàng, giữ trong bộ nhớ.
+// Chỉ chứa biến thể dưới ngưỡng nên danh sách được trả lời theo đúng số kết quả.
+// Cập nhật theo từng StockChanged (chỉ đọc lại các biến thể bị ảnh hưởng) và đồng bộ
+// lại định kỳ cho thay đổi từ node khác; mỗi lần vượt ngưỡng được đẩy qua StockAlertFeed
+// sau khi nhả khóa (và sau commit nếu đang trong transaction) để client SSE chậm không giữ khóa.
+@Component
+@RequiredArgsConstructor
+public class LowStockIndex {
+
+    private final ProductVariantRepository productVariantRepository;
+    private final StockAlertFeed alertFeed;
+
+    private final Map<Long, StockLevel> levels = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public List<StockLevel> getLowStock() {
+        return list(Level.LOW);
+    }
+
+    public List<StockLevel> getOutOfStock() {
+        return list(Level.OUT);
+    }
+
+    // Đọc lại tồn kho của các biến thể vừa thay đổi
+    public void refresh(Collection<Long> variantIds) {
+        publishAfterCommit(refreshLevels(variantIds));
+    }
+
+    @Scheduled(fixedDelayString = "${petshop.inventory.low-stock-refresh-interval-ms:300000}")
+    public void rebuild() {
+        publishAfterCommit(rebuildLevels());
+    }
+
+    private synchronized List<StockAlertDTO> refreshLevels(Collection<Long> variantIds) {
+        if (!loaded) {
+            return rebuildLevels();
+        }
+        // row: [variantId, productId, productName, variantName, sku, price, stock, threshold, active]
+        Map<Long, StockLevel> current = new HashMap<>();
+        for (Object[] row : productVariantRepository.findStockLevels(variantIds)) {
+            StockLevel level = StockLevel.of(row);
+            current.put(level.variantId(), level);
+        }
+        List<StockAlertDTO> alerts = new ArrayList<>();
+        for (Long variantId : variantIds) {
+            apply(variantId, current.get(variantId), alerts);
+        }
+        return alerts;
+    }
+
+    private synchronized List<StockAlertDTO> rebuildLevels() {
+        Map<Long, StockLevel> current = new HashMap<>();
+        for (Object[] row : productVariantRepository.findStockLevelsBelowThreshold()) {
+            StockLevel level = StockLevel.of(row);
+            current.put(level.variantId(), level);
+        }
+
+        if (!loaded) {
+            levels.putAll(current);
+            loaded = true;
+            return List.of();
+        }
+        Set<Long> variantIds = new HashSet<>(levels.keySet());
+        variantIds.addAll(current.keySet());
+        List<StockAlertDTO> alerts = new ArrayList<>();
+        for (Long variantId : variantIds) {
+            apply(variantId, current.get(variantId), alerts);
+        }
+        return alerts;
+    }
+
+    // next null = biến thể đã đủ hàng, ngừng bán hoặc bị xóa
+    private void apply(Long variantId, StockLevel next, List<StockAlertDTO> alerts) {
+        Level nextLevel = next != null ? next.level() : Level.NORMAL;
+        StockLevel previous = nextLevel == Level.NORMAL ? levels.remove(variantId) : levels.put(variantId, next);
+        Level previousLevel = previous != null ? previous.level() : Level.NORMAL;
+
+        if (previousLevel != nextLevel && next != null) {
+            alerts.add(StockAlertDTO.builder()
+                .variantId(next.variantId())
+                .productId(next.productId())
+                .productName(next.productName())
+                .variantName(next.variantName())
+                .sku(next.sku())
+                .stock(next.stock())
+                .lowStockThreshold(next.threshold())
+                .previousLevel(previousLevel)
+                .level(nextLevel)
+                .at(LocalDateTime.now())
+                .build());
+        }
+    }
+
+    private void publishAfterCommit(List<StockAlertDTO> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            alerts.forEach(alertFeed::publish);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                alerts.forEach(alertFeed::publish);
+            }
+        });
+    }
+
+    private List<StockLevel> list(Level level) {
+        if (!loaded) {
+            rebuild();
+        }
+        return levels.values().stream()
+            .filter(l -> l.level() == level)
+            .sorted(Comparator.comparingInt(StockLevel::stock).thenComparing(StockLevel::variantId))
+            .collect(Collectors.toList());
+    }
+
+    public enum Level {
+        NORMAL,     // Còn đủ hàng
+        LOW,        // 0 < tồn kho <= ngưỡng
+        OUT         // Hết hàng
+    }
+
+    public record StockLevel(Long variantId, Long productId, String productName, String variantName, String sku,
+                             BigDecimal price, int stock, int threshold, boolean active) {
+
+        static StockLevel of(Object[] row) {
+            return new StockLevel((Long) row[0], (Long) row[1], (String) row[2], (String) row[3], (String) row[4],
+                (BigDecimal) row[5], (Integer) row[6], (Integer) row[7], (Boolean) row[8]);
+        }
+
+        public Level level() {
+            if (!active) {
+                return Level.NORMAL;
+            }
+            if (stock <= 0) {
+                return Level.OUT;
+            }
+            return stock <= threshold ? Level.LOW : Level.NORMAL;
+        }
+    }
+}
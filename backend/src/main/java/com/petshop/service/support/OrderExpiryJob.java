@@ -0,0 +1,94 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.Order;
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
+import com.petshop.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Tự hủy đơn thanh toán online (không phải COD) còn PENDING quá hạn,
+// trả lại hàng và lượt dùng voucher đang giữ.
+// Xử lý theo từng lô, mỗi lô một transaction; chỉ node giữ lease mới chạy,
+// các dòng của lô còn được khóa bằng SKIP LOCKED nên không bao giờ bị hủy hai lần.
+@Component
+@Slf4j
+public class OrderExpiryJob {
+
+    private static final String LEASE_NAME = "order-expiry";
+    private static final Duration LEASE_TTL = Duration.ofMinutes(5);
+    private static final String CANCEL_REASON = "Quá hạn thanh toán";
+
+    private final OrderRepository orderRepository;
+    private final StockRestorer stockRestorer;
+    private final VoucherRedeemer voucherRedeemer;
+    private final LeaseManager leaseManager;
+    private final DomainEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${petshop.order.payment-timeout-minutes:30}")
+    private long paymentTimeoutMinutes;
+
+    @Value("${petshop.order.expiry-chunk-size:100}")
+    private int chunkSize;
+
+    public OrderExpiryJob(OrderRepository orderRepository, StockRestorer stockRestorer,
+                          VoucherRedeemer voucherRedeemer, LeaseManager leaseManager,
+                          DomainEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.stockRestorer = stockRestorer;
+        this.voucherRedeemer = voucherRedeemer;
+        this.leaseManager = leaseManager;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${petshop.order.expiry-scan-interval-ms:60000}")
+    public void cancelExpiredOrders() {
+        if (!leaseManager.tryAcquire(LEASE_NAME, LEASE_TTL)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(paymentTimeoutMinutes);
+            int total = 0;
+            int cancelled;
+            do {
+                Integer result = transactionTemplate.execute(status -> cancelChunk(cutoff));
+                cancelled = result != null ? result : 0;
+                total += cancelled;
+                // Gia hạn lease giữa các lô; dừng nếu đã mất lease
+            } while (cancelled == chunkSize && leaseManager.tryAcquire(LEASE_NAME, LEASE_TTL));
+
+            if (total > 0) {
+                log.info("Auto-cancelled {} unpaid orders created before {}", total, cutoff);
+            }
+        } catch (Exception e) {
+            log.error("Could not cancel expired orders", e);
+        } finally {
+            leaseManager.release(LEASE_NAME);
+        }
+    }
+
+    private int cancelChunk(LocalDateTime cutoff) {
+        List<Long> orderIds = orderRepository.lockExpiredUnpaid(cutoff, chunkSize);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        orderRepository.bulkCancel(orderIds, CANCEL_REASON, LocalDateTime.now());
+        stockRestorer.restore(orderIds, "Hoàn kho do đơn quá hạn thanh toán", null);
+        voucherRedeemer.releaseAll(orderIds);
+        eventPublisher.publishAll(orderIds.stream()
+            .map(id -> new DomainEvent.OrderStatusChanged(id, Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED))
+            .collect(Collectors.toList()));
+        return orderIds.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.Review;
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
+import com.petshop.repository.ProductRatingStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Cập nhật điểm đánh giá sản phẩm theo delta thay vì AVG/COUNT lại toàn bộ review
+@Component
+@RequiredArgsConstructor
+public class ProductRatingAggregator {
+
+    private final ProductRatingStatsRepository statsRepository;
+    private final DomainEventPublisher eventPublisher;
+
+    // Review có được tính vào điểm sản phẩm không
+    public static boolean isCounted(Review review) {
+        return review.getProduct() != null
+            && Boolean.TRUE.equals(review.getVisible())
+            && !Boolean.TRUE.equals(review.getHidden());
+    }
+
+    public void added(Review review) {
+        apply(review, 1);
+    }
+
+    public void removed(Review review) {
+        apply(review, -1);
+    }
+
+    // Tính lại toàn bộ từ bảng reviews, trả về số sản phẩm có đánh giá
+    @Transactional
+    public int reconcileAll() {
+        statsRepository.deleteAllStats();
+        int products = statsRepository.rebuildAllStats();
+        statsRepository.syncAllProducts();
+        return products;
+    }
+
+    private void apply(Review review, int sign) {
+        if (review.getProduct() == null) {
+            return;
+        }
+        Long productId = review.getProduct().getId();
+        statsRepository.applyDelta(productId, review.getRating(), sign);
+        // Cột điểm trên bảng products được chép lại bất đồng bộ
+        eventPublisher.publish(new DomainEvent.ReviewChanged(productId));
+    }
+}
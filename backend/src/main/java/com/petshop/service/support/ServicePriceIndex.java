@@ -0,0 +1,200 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.Pet;
+import com.petshop.repository.SpaServiceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+// Bảng giá dịch vụ spa dựng sẵn trong bộ nhớ.
+// Snapshot bất biến, được thay nguyên khối mỗi khi dịch vụ thay đổi.
+@Component
+@RequiredArgsConstructor
+public class ServicePriceIndex {
+
+    private final SpaServiceRepository spaServiceRepository;
+
+    private volatile Map<Long, ServicePrices> snapshot;
+
+    public Optional<ServicePrices> get(Long serviceId) {
+        return Optional.ofNullable(snapshot().get(serviceId));
+    }
+
+    // Giá theo loại thú cưng và cân nặng, rỗng nếu dịch vụ chưa có bảng giá
+    public Optional<PriceTier> quote(Long serviceId, Pet.PetType petType, Double weight) {
+        return get(serviceId).flatMap(prices -> prices.findTier(petType, weight));
+    }
+
+    // Dựng lại sau khi transaction hiện tại commit
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuild();
+            }
+        });
+    }
+
+    // Đồng bộ định kỳ (dịch vụ / bảng giá thay đổi ở node khác)
+    @Scheduled(fixedDelayString = "${petshop.appointment.price-refresh-interval-ms:300000}")
+    public synchronized void rebuild() {
+        snapshot = load();
+    }
+
+    private Map<Long, ServicePrices> snapshot() {
+        Map<Long, ServicePrices> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private Map<Long, ServicePrices> load() {
+        // row: [serviceId, name, duration, active, pricingId, petType, minWeight, maxWeight, price]
+        Map<Long, ServicePrices.Builder> builders = new LinkedHashMap<>();
+        for (Object[] row : spaServiceRepository.findAllWithPricing()) {
+            ServicePrices.Builder builder = builders.computeIfAbsent((Long) row[0],
+                id -> new ServicePrices.Builder(id, (String) row[1], (Integer) row[2], (Boolean) row[3]));
+            if (row[4] != null) {
+                builder.add(new PriceTier((Long) row[4], (Pet.PetType) row[5],
+                    (Double) row[6], (Double) row[7], (BigDecimal) row[8]));
+            }
+        }
+
+        Map<Long, ServicePrices> result = new HashMap<>();
+        builders.forEach((id, builder) -> result.put(id, builder.build()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    public record PriceTier(Long id, Pet.PetType petType, Double minWeight, Double maxWeight, BigDecimal price) {
+    }
+
+    public static final class ServicePrices {
+
+        private final Long serviceId;
+        private final String name;
+        private final Integer duration;
+        private final boolean active;
+        // Tất cả các bậc giá, sắp theo cân nặng tối thiểu
+        private final List<PriceTier> tiers;
+        // Bậc giá riêng cho từng loại thú cưng (null = áp dụng chung)
+        private final Map<Pet.PetType, PriceTier[]> tiersByType;
+        private final PriceTier[] genericTiers;
+        private final PriceTier[] allTiers;
+
+        private ServicePrices(Long serviceId, String name, Integer duration, boolean active, List<PriceTier> tiers) {
+            this.serviceId = serviceId;
+            this.name = name;
+            this.duration = duration;
+            this.active = active;
+            this.tiers = List.copyOf(tiers);
+            this.allTiers = tiers.toArray(new PriceTier[0]);
+
+            Map<Pet.PetType, List<PriceTier>> grouped = new EnumMap<>(Pet.PetType.class);
+            List<PriceTier> generic = new ArrayList<>();
+            for (PriceTier tier : tiers) {
+                if (tier.petType() == null) {
+                    generic.add(tier);
+                } else {
+                    grouped.computeIfAbsent(tier.petType(), t -> new ArrayList<>()).add(tier);
+                }
+            }
+            Map<Pet.PetType, PriceTier[]> byType = new EnumMap<>(Pet.PetType.class);
+            grouped.forEach((type, list) -> byType.put(type, list.toArray(new PriceTier[0])));
+            this.tiersByType = byType;
+            this.genericTiers = generic.toArray(new PriceTier[0]);
+        }
+
+        public Long getServiceId() {
+            return serviceId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Integer getDuration() {
+            return duration;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public List<PriceTier> getTiers() {
+            return tiers;
+        }
+
+        // Ưu tiên bảng giá đúng loại thú cưng, sau đó bảng giá chung, cuối cùng là toàn bộ
+        public Optional<PriceTier> findTier(Pet.PetType petType, Double weight) {
+            PriceTier[] candidates = petType != null ? tiersByType.get(petType) : null;
+            if (candidates == null || candidates.length == 0) {
+                candidates = genericTiers.length > 0 ? genericTiers : allTiers;
+            }
+            if (candidates.length == 0) {
+                return Optional.empty();
+            }
+            if (weight == null) {
+                return Optional.of(candidates[0]);
+            }
+
+            // Bậc cuối cùng có minWeight <= weight
+            int low = 0;
+            int high = candidates.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (candidates[mid].minWeight() <= weight) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            if (found >= 0 && weight <= candidates[found].maxWeight()) {
+                return Optional.of(candidates[found]);
+            }
+            // Ngoài mọi khoảng: nhẹ hơn bậc đầu thì lấy bậc đầu, còn lại lấy bậc cuối
+            return Optional.of(found < 0 ? candidates[0] : candidates[candidates.length - 1]);
+        }
+
+        private static final class Builder {
+            private final Long serviceId;
+            private final String name;
+            private final Integer duration;
+            private final boolean active;
+            private final List<PriceTier> tiers = new ArrayList<>();
+
+            private Builder(Long serviceId, String name, Integer duration, Boolean active) {
+                this.serviceId = serviceId;
+                this.name = name;
+                this.duration = duration;
+                this.active = Boolean.TRUE.equals(active);
+            }
+
+            private void add(PriceTier tier) {
+                tiers.add(tier);
+            }
+
+            private ServicePrices build() {
+                tiers.sort(Comparator.comparing(PriceTier::minWeight));
+                return new ServicePrices(serviceId, name, duration, active, tiers);
+            }
+        }
+    }
+}
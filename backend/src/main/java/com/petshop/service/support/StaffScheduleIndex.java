@@ -0,0 +1,406 @@
+package com.petshop.service.support;
+
+import com.petshop.repository.BookingDayLockRepository;
+import com.petshop.repository.BookingRepository;
+import com.petshop.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Lịch làm việc của từng nhân viên theo ngày (giữ trong bộ nhớ).
+// Mỗi nhân viên có một TreeMap startTime -> endTime không chồng lấn,
+// nên kiểm tra trống chỉ cần một lần lowerEntry (O(log n)).
+// Bộ nhớ là của từng node nên khi giữ chỗ / đổi nhân viên, ngày đó được khóa trong DB
+// và ghế được chọn được kiểm tra lại với DB; các ngày đã nạp được nạp lại định kỳ.
+@Component
+@Slf4j
+public class StaffScheduleIndex {
+
+    // Khi chưa có nhân viên STAFF nào, cả shop được xem là một ghế
+    private static final Long SHOP_CHAIR = 0L;
+    // Holder giả cho booking nằm trong danh sách tràn
+    private static final Long OVERFLOW = -1L;
+
+    private final BookingRepository bookingRepository;
+    private final BookingDayLockRepository dayLockRepository;
+    private final UserRepository userRepository;
+    // Nạp lại ngày trong transaction riêng: transaction của request có thể đang đọc snapshot cũ
+    private final TransactionTemplate readTemplate;
+
+    private final Map<LocalDate, DaySchedule> days = new ConcurrentHashMap<>();
+
+    public StaffScheduleIndex(BookingRepository bookingRepository, BookingDayLockRepository dayLockRepository,
+                              UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.dayLockRepository = dayLockRepository;
+        this.userRepository = userRepository;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    // Số nhân viên còn trống trong khung giờ
+    public int remainingCapacity(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        DaySchedule day = getDay(date);
+        synchronized (day) {
+            int free = 0;
+            for (Long staffId : day.activeSeats) {
+                if (day.isFree(staffId, startTime, endTime)) {
+                    free++;
+                }
+            }
+            return Math.max(0, free - day.overflowCount(startTime, endTime));
+        }
+    }
+
+    // Giữ chỗ cho nhân viên rảnh và ít việc nhất trong ngày. Phải được gọi trong transaction.
+    // Trả về id ghế (dùng toStaffId để đổi sang id nhân viên),
+    // hoặc Optional.empty() nếu khung giờ đã kín.
+    public Optional<Long> reserve(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        dayLockRepository.lock(date);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            DaySchedule day = getDay(date);
+            Long chosen = reserveIn(day, startTime, endTime);
+            if (chosen == null) {
+                return Optional.empty();
+            }
+            if (bookingRepository.countOverlappingLocked(date, toStaffId(chosen), startTime, endTime, null) == 0) {
+                afterRollback(() -> {
+                    synchronized (day) {
+                        day.removeFrom(chosen, startTime, endTime);
+                    }
+                });
+                return Optional.of(chosen);
+            }
+            // Node khác đã xếp lịch vào ghế này: bộ nhớ đã cũ, nạp lại ngày rồi chọn lại
+            synchronized (day) {
+                day.removeFrom(chosen, startTime, endTime);
+            }
+            reload(date, day);
+        }
+        return Optional.empty();
+    }
+
+    // Trả lại khung giờ khi booking bị hủy / không đến
+    public void release(LocalDate date, Long staffId, LocalTime startTime, LocalTime endTime) {
+        DaySchedule day = days.get(date);
+        if (day == null) {
+            return;
+        }
+        synchronized (day) {
+            day.remove(staffId, startTime, endTime);
+        }
+    }
+
+    public void releaseAfterCommit(LocalDate date, Long staffId, LocalTime startTime, LocalTime endTime) {
+        afterCommit(() -> release(date, staffId, startTime, endTime));
+    }
+
+    // Chuyển booking sang nhân viên khác, false nếu nhân viên đó đã có lịch. Phải được gọi trong transaction.
+    // Người nhận không có ghế (ví dụ ADMIN) được mở một ghế riêng, ghế này không nhận lịch tự động.
+    public boolean reassign(LocalDate date, Long bookingId, Long fromStaffId, Long toStaffId,
+                            LocalTime startTime, LocalTime endTime) {
+        dayLockRepository.lock(date);
+        if (bookingRepository.countOverlappingLocked(date, toStaffId, startTime, endTime, bookingId) > 0) {
+            return false;
+        }
+        DaySchedule day = getDay(date);
+        Long holder;
+        synchronized (day) {
+            day.openSeat(toStaffId);
+            holder = day.remove(fromStaffId, startTime, endTime);
+            if (!day.isFree(toStaffId, startTime, endTime)) {
+                if (holder != null) {
+                    day.restore(holder, startTime, endTime);
+                }
+                return false;
+            }
+            day.add(toStaffId, startTime, endTime);
+        }
+
+        // Rollback chỉ hoàn tác đúng lần chuyển này, không đụng tới giữ chỗ của transaction khác
+        Long previousHolder = holder;
+        afterRollback(() -> {
+            synchronized (day) {
+                day.removeFrom(toStaffId, startTime, endTime);
+                if (previousHolder != null) {
+                    day.restore(previousHolder, startTime, endTime);
+                }
+            }
+        });
+        return true;
+    }
+
+    public void refreshStaffAfterCommit() {
+        afterCommit(this::refreshStaff);
+    }
+
+    // Đồng bộ danh sách nhân viên cho các ngày đã nạp (nhân viên mới / nghỉ việc)
+    @Scheduled(fixedDelayString = "${petshop.appointment.staff-refresh-interval-ms:300000}")
+    public void refreshStaff() {
+        if (days.isEmpty()) {
+            return;
+        }
+        List<Long> staffIds = userRepository.findActiveStaffIds();
+        for (DaySchedule day : days.values()) {
+            synchronized (day) {
+                day.syncSeats(staffIds);
+            }
+        }
+    }
+
+    // Nạp lại các ngày đã nạp để thấy lịch được đặt / hủy ở node khác
+    @Scheduled(fixedDelayString = "${petshop.appointment.day-reload-interval-ms:60000}")
+    public void reloadDays() {
+        days.keySet().removeIf(d -> d.isBefore(LocalDate.now()));
+        for (Map.Entry<LocalDate, DaySchedule> entry : days.entrySet()) {
+            reload(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public static Long toStaffId(Long chairId) {
+        return SHOP_CHAIR.equals(chairId) ? null : chairId;
+    }
+
+    public static Long toChairId(Long staffId) {
+        return staffId != null ? staffId : SHOP_CHAIR;
+    }
+
+    private Long reserveIn(DaySchedule day, LocalTime startTime, LocalTime endTime) {
+        synchronized (day) {
+            Long chosen = null;
+            long chosenLoad = Long.MAX_VALUE;
+            int free = 0;
+            for (Long staffId : day.activeSeats) {
+                if (!day.isFree(staffId, startTime, endTime)) {
+                    continue;
+                }
+                free++;
+                long load = day.bookedMinutes.getOrDefault(staffId, 0L);
+                if (load < chosenLoad) {
+                    chosen = staffId;
+                    chosenLoad = load;
+                }
+            }
+            // Booking cũ không xếp được ghế vẫn chiếm chỗ trong khung giờ của nó
+            if (chosen == null || free <= day.overflowCount(startTime, endTime)) {
+                return null;
+            }
+            day.add(chosen, startTime, endTime);
+            return chosen;
+        }
+    }
+
+    // Nạp ngoài map (không truy vấn DB trong computeIfAbsent); hai luồng cùng nạp thì giữ bản vào trước
+    private DaySchedule getDay(LocalDate date) {
+        DaySchedule day = days.get(date);
+        if (day != null) {
+            return day;
+        }
+        days.keySet().removeIf(d -> d.isBefore(LocalDate.now()));
+        DaySchedule loaded = load(date);
+        DaySchedule existing = days.putIfAbsent(date, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    // Thay bản đang dùng bằng bản mới đọc từ DB (nếu chưa bị thay bởi luồng khác).
+    // Giữ chỗ của transaction chưa commit không có trong bản mới; chúng vẫn được DB kiểm tra lại.
+    private void reload(LocalDate date, DaySchedule current) {
+        days.replace(date, current, load(date));
+    }
+
+    private DaySchedule load(LocalDate date) {
+        List<Long> staffIds = userRepository.findActiveStaffIds();
+        List<Object[]> slots = readTemplate.execute(status -> bookingRepository.findActiveSlotsByDate(date));
+
+        DaySchedule day = new DaySchedule();
+        day.syncSeats(staffIds);
+
+        // row: [staffId, startTime, endTime]
+        List<Object[]> unassigned = new ArrayList<>();
+        for (Object[] row : slots) {
+            Long staffId = toChairId((Long) row[0]);
+            LocalTime start = (LocalTime) row[1];
+            LocalTime end = (LocalTime) row[2];
+            // Booking đã gán người (kể cả ADMIN / nhân viên đã nghỉ) nằm ở ghế của người đó
+            if (!SHOP_CHAIR.equals(staffId)) {
+                day.openSeat(staffId);
+            }
+            if (day.isFree(staffId, start, end)) {
+                day.add(staffId, start, end);
+            } else {
+                unassigned.add(row);
+            }
+        }
+
+        // Booking cũ chưa gán nhân viên (hoặc trùng lịch) vẫn chiếm một ghế
+        int overflow = 0;
+        for (Object[] row : unassigned) {
+            if (!day.place((LocalTime) row[1], (LocalTime) row[2])) {
+                overflow++;
+            }
+        }
+        if (overflow > 0) {
+            log.warn("{} bookings on {} do not fit any groomer, counted against capacity", overflow, date);
+        }
+        day.dropEmptySeats();
+        return day;
+    }
+
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class DaySchedule {
+
+        // Mọi ghế đang giữ lịch, kể cả của nhân viên đã nghỉ
+        private final Map<Long, TreeMap<LocalTime, LocalTime>> slotsByStaff = new LinkedHashMap<>();
+        // Ghế còn nhận lịch mới
+        private final Set<Long> activeSeats = new LinkedHashSet<>();
+        private final Map<Long, Long> bookedMinutes = new HashMap<>();
+        // Booking không xếp được vào ghế nào (dữ liệu cũ bị trùng lịch)
+        private final List<LocalTime[]> overflow = new ArrayList<>();
+
+        void syncSeats(List<Long> staffIds) {
+            activeSeats.clear();
+            activeSeats.addAll(staffIds.isEmpty() ? List.of(SHOP_CHAIR) : staffIds);
+            activeSeats.forEach(id -> slotsByStaff.computeIfAbsent(id, k -> new TreeMap<>()));
+
+            // Ghế chung chỉ dùng khi chưa có nhân viên: dời lịch của nó sang nhân viên
+            if (!activeSeats.contains(SHOP_CHAIR)) {
+                TreeMap<LocalTime, LocalTime> shared = slotsByStaff.remove(SHOP_CHAIR);
+                bookedMinutes.remove(SHOP_CHAIR);
+                if (shared != null) {
+                    shared.forEach(this::place);
+                }
+            }
+            dropEmptySeats();
+        }
+
+        // Ghế riêng cho người được gán lịch thủ công (không nhận lịch tự động)
+        void openSeat(Long staffId) {
+            slotsByStaff.computeIfAbsent(staffId, id -> new TreeMap<>());
+        }
+
+        void dropEmptySeats() {
+            slotsByStaff.entrySet().removeIf(e -> !activeSeats.contains(e.getKey()) && e.getValue().isEmpty());
+        }
+
+        // Xếp booking vào ghế trống đầu tiên, không được thì tính là booking tràn
+        boolean place(LocalTime startTime, LocalTime endTime) {
+            for (Long id : activeSeats) {
+                if (isFree(id, startTime, endTime)) {
+                    add(id, startTime, endTime);
+                    return true;
+                }
+            }
+            overflow.add(new LocalTime[]{startTime, endTime});
+            return false;
+        }
+
+        // Trả khoảng thời gian về ghế cũ, hoặc xếp lại nếu ghế đó đã bị chiếm
+        void restore(Long staffId, LocalTime startTime, LocalTime endTime) {
+            if (slotsByStaff.containsKey(staffId) && isFree(staffId, startTime, endTime)) {
+                add(staffId, startTime, endTime);
+            } else {
+                place(startTime, endTime);
+            }
+        }
+
+        int overflowCount(LocalTime startTime, LocalTime endTime) {
+            int count = 0;
+            for (LocalTime[] slot : overflow) {
+                if (slot[0].isBefore(endTime) && slot[1].isAfter(startTime)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        boolean isFree(Long staffId, LocalTime startTime, LocalTime endTime) {
+            TreeMap<LocalTime, LocalTime> slots = slotsByStaff.get(staffId);
+            if (slots == null) {
+                return false;
+            }
+            // Các khoảng không chồng lấn nên khoảng bắt đầu muộn nhất trước endTime
+            // cũng là khoảng kết thúc muộn nhất
+            Map.Entry<LocalTime, LocalTime> previous = slots.lowerEntry(endTime);
+            return previous == null || !previous.getValue().isAfter(startTime);
+        }
+
+        void add(Long staffId, LocalTime startTime, LocalTime endTime) {
+            slotsByStaff.computeIfAbsent(staffId, id -> new TreeMap<>()).put(startTime, endTime);
+            bookedMinutes.merge(staffId, minutes(startTime, endTime), Long::sum);
+        }
+
+        // Xóa khoảng thời gian, trả về nhân viên đang giữ nó (OVERFLOW nếu là booking tràn)
+        Long remove(Long staffId, LocalTime startTime, LocalTime endTime) {
+            Long chairId = toChairId(staffId);
+            if (removeFrom(chairId, startTime, endTime)) {
+                return chairId;
+            }
+            // Booking chưa gán nhân viên có thể đang nằm ở bất kỳ ghế nào
+            for (Long id : slotsByStaff.keySet()) {
+                if (removeFrom(id, startTime, endTime)) {
+                    return id;
+                }
+            }
+            for (Iterator<LocalTime[]> it = overflow.iterator(); it.hasNext(); ) {
+                LocalTime[] slot = it.next();
+                if (slot[0].equals(startTime) && slot[1].equals(endTime)) {
+                    it.remove();
+                    return OVERFLOW;
+                }
+            }
+            return null;
+        }
+
+        boolean removeFrom(Long staffId, LocalTime startTime, LocalTime endTime) {
+            TreeMap<LocalTime, LocalTime> slots = slotsByStaff.get(staffId);
+            if (slots == null || !endTime.equals(slots.get(startTime))) {
+                return false;
+            }
+            slots.remove(startTime);
+            bookedMinutes.merge(staffId, -minutes(startTime, endTime), Long::sum);
+            return true;
+        }
+
+        private static long minutes(LocalTime startTime, LocalTime endTime) {
+            return Duration.between(startTime, endTime).toMinutes();
+        }
+    }
+}
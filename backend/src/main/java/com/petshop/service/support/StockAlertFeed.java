@@ -0,0 +1,80 @@
+package com.petshop.service.support;
+
+import com.petshop.dto.response.StockAlertDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Kênh SSE đẩy cảnh báo tồn kho cho nhân viên đang mở trang quản trị (theo từng node).
+// Việc gửi chạy trên một thread riêng (giữ đúng thứ tự cảnh báo), để client chậm
+// không giữ thread xử lý sự kiện / transaction của người gọi publish.
+@Component
+@Slf4j
+public class StockAlertFeed {
+
+    private static final long TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "stock-alert-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_MS);
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        return emitter;
+    }
+
+    public void publish(StockAlertDTO alert) {
+        submit(() -> sendToAll(() -> SseEmitter.event().name("stock-alert").data(alert)));
+    }
+
+    // Gửi comment định kỳ để proxy không đóng kết nối rảnh
+    @Scheduled(fixedDelay = 25000)
+    public void heartbeat() {
+        submit(() -> sendToAll(() -> SseEmitter.event().comment("ping")));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        sender.shutdown();
+        sender.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void submit(Runnable task) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi đầy (client quá chậm): bỏ cảnh báo này, danh sách sắp hết hàng vẫn xem được qua API
+            log.warn("Stock alert queue is full, dropping event");
+        }
+    }
+
+    // Mỗi emitter cần một builder mới (builder không dùng lại được sau khi gửi)
+    private void sendToAll(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.get());
+            } catch (Exception e) {
+                emitters.remove(emitter);
+                log.debug("Dropped stock alert subscriber: {}", e.getMessage());
+            }
+        }
+    }
+}
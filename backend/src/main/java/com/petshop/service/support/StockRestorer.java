@@ -0,0 +1,73 @@
+package com.petshop.service.support;
+
+import com.petshop.event.DomainEvent;
+import com.petshop.event.DomainEventPublisher;
+import com.petshop.repository.OrderItemRepository;
+import com.petshop.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Hoàn kho cho các đơn bị hủy.
+// Số lượng được cộng dồn theo biến thể trước khi ghi, nên hủy N đơn chỉ tốn một câu
+// UPDATE cho mỗi biến thể (gửi theo JDBC batch), cùng một batch INSERT phiếu RETURN
+// cho từng cặp (đơn, biến thể). Số lượng đã bán được trừ bởi SoldCountHandler.
+@Component
+@RequiredArgsConstructor
+public class StockRestorer {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DomainEventPublisher eventPublisher;
+
+    // Phải được gọi trong transaction hủy đơn; createdBy null = hệ thống
+    @Transactional
+    public void restore(Collection<Long> orderIds, String note, Long createdBy) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        // row: [orderId, variantId, productId, quantity]
+        List<Object[]> rows = orderItemRepository.sumQuantitiesByOrderIds(orderIds);
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> variantDeltas = new TreeMap<>();
+        for (Object[] row : rows) {
+            variantDeltas.merge((Long) row[1], ((Number) row[3]).intValue(), Integer::sum);
+        }
+
+        // Khóa các biến thể theo thứ tự id để đọc tồn kho trước khi cộng (tránh deadlock)
+        // row: [variantId, stock]
+        Map<Long, Integer> stocks = new HashMap<>();
+        for (Object[] row : productVariantRepository.lockStocks(variantDeltas.keySet())) {
+            stocks.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+
+        List<Object[]> variantUpdates = new ArrayList<>();
+        variantDeltas.forEach((variantId, quantity) -> variantUpdates.add(new Object[] { quantity, variantId }));
+        jdbcTemplate.batchUpdate("UPDATE product_variants SET stock = stock + ?, version = version + 1 WHERE id = ?", variantUpdates);
+
+        // Phiếu RETURN: tồn trước / sau được tính nối tiếp cho các đơn cùng biến thể
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> movements = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long variantId = (Long) row[1];
+            int quantity = ((Number) row[3]).intValue();
+            int before = stocks.getOrDefault(variantId, 0);
+            stocks.put(variantId, before + quantity);
+            movements.add(new Object[] { variantId, quantity, before, before + quantity, note, row[0], createdBy, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO stock_movements (variant_id, movement_type, quantity, quantity_before, " +
+            "quantity_after, note, order_id, created_by, created_at) VALUES (?, 'RETURN', ?, ?, ?, ?, ?, ?, ?)", movements);
+
+        eventPublisher.publish(new DomainEvent.StockChanged(new ArrayList<>(variantDeltas.keySet())));
+    }
+}
@@ -0,0 +1,203 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.Voucher;
+import com.petshop.repository.VoucherRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Toàn bộ voucher giữ trong bộ nhớ, tra theo mã viết hoa.
+// Vì có đủ mọi mã nên mã không tồn tại cũng được trả lời mà không chạm DB.
+// Định nghĩa voucher là snapshot bất biến; riêng usedCount được đọc lại sau mỗi lần dùng.
+@Component
+@RequiredArgsConstructor
+public class VoucherIndex {
+
+    private final VoucherRepository voucherRepository;
+
+    private volatile Snapshot snapshot;
+
+    // Bản sao tách rời (không phải entity được quản lý)
+    public Optional<Voucher> findByCode(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot().byCode.get(code.trim().toUpperCase()))
+            .map(Entry::toVoucher);
+    }
+
+    // Voucher đang hiệu lực, danh sách theo ngày được tính lại khi qua mốc startDate/endDate
+    public List<Voucher> getActiveVouchers() {
+        Snapshot current = snapshot();
+        LocalDateTime now = LocalDateTime.now();
+        ActiveList active = current.active;
+        if (active == null || !now.isBefore(active.validUntil)) {
+            active = current.computeActive(now);
+            current.active = active;
+        }
+        return active.entries.stream()
+            .filter(Entry::hasRemainingUsage)
+            .map(Entry::toVoucher)
+            .collect(Collectors.toList());
+    }
+
+    // Đọc lại số lượt đã dùng sau khi transaction commit.
+    // Không cộng dồn delta: một lần rebuild chạy song song có thể đã thấy hoặc chưa thấy
+    // thay đổi vừa commit. Mỗi lần giữ/trả lượt đều tăng version nên chỉ nhận giá trị mới hơn,
+    // và chạy cùng khóa với rebuild để không ghi vào snapshot sắp bị thay.
+    public void refreshUsageAfterCommit(Long voucherId) {
+        afterCommit(() -> refreshUsage(voucherId));
+    }
+
+    private synchronized void refreshUsage(Long voucherId) {
+        Entry entry = snapshot().byId.get(voucherId);
+        if (entry == null) {
+            return;
+        }
+        // row: [usedCount, version]
+        for (Object[] row : voucherRepository.findUsage(voucherId)) {
+            entry.update((Integer) row[0], (Long) row[1]);
+        }
+    }
+
+    public void rebuildAfterCommit() {
+        afterCommit(this::rebuild);
+    }
+
+    // Đồng bộ định kỳ (voucher thay đổi ở node khác, lượt dùng bị lệch)
+    @Scheduled(fixedDelayString = "${petshop.voucher.refresh-interval-ms:300000}")
+    public synchronized void rebuild() {
+        snapshot = load();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        Map<String, Entry> byCode = new HashMap<>();
+        Map<Long, Entry> byId = new HashMap<>();
+        for (Voucher voucher : voucherRepository.findAll()) {
+            Entry entry = new Entry(voucher);
+            byCode.put(voucher.getCode().toUpperCase(), entry);
+            byId.put(voucher.getId(), entry);
+        }
+        return new Snapshot(byCode, byId);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Snapshot {
+        private final Map<String, Entry> byCode;
+        private final Map<Long, Entry> byId;
+        private volatile ActiveList active;
+
+        private Snapshot(Map<String, Entry> byCode, Map<Long, Entry> byId) {
+            this.byCode = Collections.unmodifiableMap(byCode);
+            this.byId = Collections.unmodifiableMap(byId);
+        }
+
+        // Danh sách đang trong hạn và mốc thời gian gần nhất làm nó thay đổi
+        private ActiveList computeActive(LocalDateTime now) {
+            List<Entry> entries = new ArrayList<>();
+            LocalDateTime validUntil = LocalDateTime.MAX;
+            for (Entry entry : byId.values()) {
+                Voucher v = entry.voucher;
+                if (!Boolean.TRUE.equals(v.getActive())) {
+                    continue;
+                }
+                if (v.getStartDate().isAfter(now)) {
+                    validUntil = min(validUntil, v.getStartDate());
+                } else if (!v.getEndDate().isBefore(now)) {
+                    entries.add(entry);
+                    validUntil = min(validUntil, v.getEndDate());
+                }
+            }
+            return new ActiveList(List.copyOf(entries), validUntil);
+        }
+
+        private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+            return a.isBefore(b) ? a : b;
+        }
+    }
+
+    private record ActiveList(List<Entry> entries, LocalDateTime validUntil) {
+    }
+
+    private static final class Entry {
+        private final Voucher voucher;
+        private final AtomicInteger usedCount;
+        // Version của dòng voucher ứng với usedCount đang giữ
+        private long version;
+
+        private Entry(Voucher voucher) {
+            this.voucher = copy(voucher, voucher.getUsedCount());
+            this.usedCount = new AtomicInteger(voucher.getUsedCount() != null ? voucher.getUsedCount() : 0);
+            this.version = voucher.getVersion() != null ? voucher.getVersion() : 0L;
+        }
+
+        // Gọi khi đang giữ khóa của VoucherIndex
+        private void update(Integer usedCount, Long version) {
+            if (version != null && version > this.version) {
+                this.version = version;
+                this.usedCount.set(usedCount != null ? usedCount : 0);
+            }
+        }
+
+        private boolean hasRemainingUsage() {
+            return voucher.getUsageLimit() == null || usedCount.get() < voucher.getUsageLimit();
+        }
+
+        private Voucher toVoucher() {
+            return copy(voucher, usedCount.get());
+        }
+
+        private static Voucher copy(Voucher v, Integer usedCount) {
+            return Voucher.builder()
+                .id(v.getId())
+                .code(v.getCode())
+                .description(v.getDescription())
+                .discountType(v.getDiscountType())
+                .discountValue(v.getDiscountValue())
+                .maxDiscount(v.getMaxDiscount())
+                .minOrderAmount(v.getMinOrderAmount())
+                .usageLimit(v.getUsageLimit())
+                .usedCount(usedCount)
+                .usageLimitPerUser(v.getUsageLimitPerUser())
+                .startDate(v.getStartDate())
+                .endDate(v.getEndDate())
+                .applyTo(v.getApplyTo())
+                .active(v.getActive())
+                .createdAt(v.getCreatedAt())
+                .updatedAt(v.getUpdatedAt())
+                .build();
+        }
+    }
+}
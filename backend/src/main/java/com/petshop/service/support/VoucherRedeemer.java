@@ -0,0 +1,74 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.Order;
+import com.petshop.entity.User;
+import com.petshop.entity.Voucher;
+import com.petshop.entity.VoucherRedemption;
+import com.petshop.exception.BadRequestException;
+import com.petshop.repository.VoucherRedemptionRepository;
+import com.petshop.repository.VoucherRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+// Giữ / trả lượt dùng voucher.
+// Tổng lượt dùng được tăng bằng một câu UPDATE có điều kiện nên không bao giờ vượt usageLimit;
+// câu UPDATE đó cũng khóa dòng voucher đến hết transaction nên kiểm tra lượt dùng
+// theo từng user phía sau không bị chạy song song.
+@Component
+@RequiredArgsConstructor
+public class VoucherRedeemer {
+
+    private final VoucherRepository voucherRepository;
+    private final VoucherRedemptionRepository redemptionRepository;
+    private final VoucherIndex voucherIndex;
+
+    // Phải được gọi trong transaction tạo đơn hàng (order đã có id)
+    public void redeem(Voucher voucher, User user, Order order) {
+        if (voucherRepository.claimUsage(voucher.getId()) == 0) {
+            throw new BadRequestException("Voucher đã hết lượt sử dụng");
+        }
+
+        Integer perUserLimit = voucher.getUsageLimitPerUser();
+        if (perUserLimit != null
+            && redemptionRepository.countByVoucherIdAndUserIdLocked(voucher.getId(), user.getId()) >= perUserLimit) {
+            throw new BadRequestException("Bạn đã dùng hết lượt cho voucher này");
+        }
+
+        redemptionRepository.save(VoucherRedemption.builder()
+            .voucher(voucher)
+            .user(user)
+            .order(order)
+            .build());
+        voucherIndex.refreshUsageAfterCommit(voucher.getId());
+    }
+
+    // Trả lượt dùng khi đơn bị hủy; chỉ trả nếu đơn thực sự đã giữ lượt
+    public void release(Order order) {
+        if (order.getVoucher() == null) {
+            return;
+        }
+        if (redemptionRepository.deleteByOrderId(order.getId()) > 0) {
+            voucherRepository.releaseUsage(order.getVoucher().getId());
+            voucherIndex.refreshUsageAfterCommit(order.getVoucher().getId());
+        }
+    }
+
+    // Như release, cho nhiều đơn bị hủy cùng lúc
+    public void releaseAll(Collection<Long> orderIds) {
+        // row: [voucherId, count]
+        List<Object[]> rows = redemptionRepository.countByVoucherForOrders(orderIds);
+        if (rows.isEmpty()) {
+            return;
+        }
+        redemptionRepository.deleteByOrderIds(orderIds);
+        for (Object[] row : rows) {
+            Long voucherId = (Long) row[0];
+            int count = ((Long) row[1]).intValue();
+            voucherRepository.releaseUsages(voucherId, count);
+            voucherIndex.refreshUsageAfterCommit(voucherId);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.petshop.event;
+
+import com.petshop.entity.*;
+import com.petshop.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sự kiện chạy lại hoặc đến sai thứ tự vẫn chỉ cộng / trừ số lượng đã bán đúng một lần
+@SpringBootTest
+@ActiveProfiles("test")
+class SoldCountHandlerTest {
+
+    private static final int QUANTITY = 3;
+
+    @Autowired
+    private SoldCountHandler handler;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Category category;
+    private Product product;
+    private User user;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        category = categoryRepository.save(Category.builder()
+            .name("Sold " + suffix)
+            .slug("sold-" + suffix)
+            .build());
+        product = productRepository.save(Product.builder()
+            .name("Sold Product")
+            .slug("sold-product-" + suffix)
+            .category(category)
+            .build());
+        ProductVariant variant = productVariantRepository.save(ProductVariant.builder()
+            .product(product)
+            .name("Default")
+            .price(BigDecimal.valueOf(50000))
+            .stock(100)
+            .build());
+        user = userRepository.save(User.builder()
+            .email("sold-" + suffix + "@petshop.test")
+            .password("x")
+            .fullName("Sold Test")
+            .build());
+        order = orderRepository.save(Order.builder()
+            .orderCode("SC" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase())
+            .user(user)
+            .receiverName("Sold Test")
+            .receiverPhone("0900000000")
+            .shippingAddress("Test")
+            .totalItems(QUANTITY)
+            .subtotal(BigDecimal.valueOf(150000))
+            .totalAmount(BigDecimal.valueOf(150000))
+            .paymentMethod(Order.PaymentMethod.COD)
+            .build());
+        orderItemRepository.save(OrderItem.builder()
+            .order(order)
+            .variant(variant)
+            .productName(product.getName())
+            .unitPrice(variant.getPrice())
+            .quantity(QUANTITY)
+            .subtotal(variant.getPrice().multiply(BigDecimal.valueOf(QUANTITY)))
+            .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM order_sold_counts WHERE order_id = ?", order.getId());
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id = ?", order.getId());
+        jdbcTemplate.update("DELETE FROM orders WHERE id = ?", order.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id = ?", category.getId());
+    }
+
+    @Test
+    void redeliveredEventsAreAppliedOnce() {
+        handle(created());
+        handle(created());
+        assertThat(soldCount()).isEqualTo(QUANTITY);
+
+        handle(cancelled());
+        handle(cancelled());
+        assertThat(soldCount()).isZero();
+    }
+
+    @Test
+    void cancelBeforeCreateLeavesCountUnchanged() {
+        handle(cancelled());
+        handle(created());
+
+        assertThat(soldCount()).isZero();
+    }
+
+    private DomainEvent created() {
+        return new DomainEvent.OrderCreated(order.getId(), user.getId());
+    }
+
+    private DomainEvent cancelled() {
+        return new DomainEvent.OrderStatusChanged(order.getId(), Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED);
+    }
+
+    private void handle(DomainEvent event) {
+        transactionTemplate.executeWithoutResult(status -> handler.handle(event));
+    }
+
+    private int soldCount() {
+        return jdbcTemplate.queryForObject("SELECT sold_count FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
@@ -0,0 +1,130 @@
+package com.petshop.security;
+
+import com.petshop.entity.User;
+import com.petshop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Đo chi phí xác thực JWT cho mỗi request: cách cũ (verify token hai lần + SELECT users)
+// so với JwtAuthenticationFilter hiện tại (verify một lần, principal lấy từ cache)
+@SpringBootTest
+@ActiveProfiles("test")
+class JwtFilterBenchmarkTest {
+
+    private static final int WARMUP = 2_000;
+    private static final int REQUESTS = 20_000;
+
+    @Autowired
+    private JwtAuthenticationFilter filter;
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+            .email("jwt-bench-" + suffix + "@petshop.test")
+            .password("x")
+            .fullName("JWT Benchmark")
+            .build());
+        UserPrincipal principal = UserPrincipal.createWithoutPassword(user);
+        token = tokenProvider.generateToken(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void filterOverheadPerRequest() throws Exception {
+        Result before = measure(this::legacyAuthentication);
+        Result after = measure(this::filterAuthentication);
+
+        System.out.printf("JWT auth before: %,d ns/request, %.2f queries/request%n", before.nanosPerRequest, before.queriesPerRequest);
+        System.out.printf("JWT auth after:  %,d ns/request, %.2f queries/request%n", after.nanosPerRequest, after.queriesPerRequest);
+
+        // Request đã xác thực không phát sinh truy vấn nào khi principal còn trong cache
+        assertThat(before.queriesPerRequest).isGreaterThanOrEqualTo(1.0);
+        assertThat(after.queriesPerRequest).isZero();
+    }
+
+    // Cách làm trước đây của filter: validateToken, getUserIdFromJWT rồi nạp user từ DB
+    private void legacyAuthentication() {
+        if (tokenProvider.validateToken(token)) {
+            Long userId = tokenProvider.getUserIdFromJWT(token);
+            UserPrincipal principal = customUserDetailsService.loadUserById(userId);
+            SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        }
+        assertAuthenticated();
+    }
+
+    private void filterAuthentication() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        assertAuthenticated();
+    }
+
+    private void assertAuthenticated() {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            throw new IllegalStateException("Request was not authenticated");
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    private Result measure(Request request) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            request.run();
+        }
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(elapsed / REQUESTS, (double) statistics.getPrepareStatementCount() / REQUESTS);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void run() throws Exception;
+    }
+
+    private record Result(long nanosPerRequest, double queriesPerRequest) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.petshop.service.impl;
+
+import com.petshop.entity.*;
+import com.petshop.repository.*;
+import com.petshop.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Danh sách đơn hàng không được phát sinh N+1 (user, voucher, items) khi số đơn trên trang tăng
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderListQueryCountTest {
+
+    private static final int USERS = 5;
+    private static final int ORDERS_PER_USER = 6;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private VoucherRepository voucherRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private TransactionTemplate readOnly;
+
+    private Category category;
+    private Product product;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> voucherIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        category = categoryRepository.save(Category.builder()
+            .name("Query Count " + suffix)
+            .slug("query-count-" + suffix)
+            .build());
+        product = productRepository.save(Product.builder()
+            .name("Query Count Product")
+            .slug("query-count-product-" + suffix)
+            .category(category)
+            .build());
+        ProductVariant variant = productVariantRepository.save(ProductVariant.builder()
+            .product(product)
+            .name("Default")
+            .price(BigDecimal.valueOf(50000))
+            .stock(100)
+            .build());
+
+        // Mỗi user một voucher riêng để N+1 trên user / voucher lộ ra thành nhiều câu SELECT
+        for (int u = 0; u < USERS; u++) {
+            User user = userRepository.save(User.builder()
+                .email("query-count-" + suffix + "-" + u + "@petshop.test")
+                .password("x")
+                .fullName("Query Count " + u)
+                .build());
+            userIds.add(user.getId());
+            Voucher voucher = voucherRepository.save(Voucher.builder()
+                .code("QC" + suffix.toUpperCase() + u)
+                .discountType(Voucher.DiscountType.FIXED_AMOUNT)
+                .discountValue(BigDecimal.valueOf(1000))
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(1))
+                .build());
+            voucherIds.add(voucher.getId());
+
+            for (int o = 0; o < ORDERS_PER_USER; o++) {
+                Order order = orderRepository.save(Order.builder()
+                    .orderCode("QC" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase())
+                    .user(user)
+                    .receiverName("Query Count")
+                    .receiverPhone("0900000000")
+                    .shippingAddress("Test")
+                    .totalItems(3)
+                    .subtotal(BigDecimal.valueOf(150000))
+                    .voucher(voucher)
+                    .totalAmount(BigDecimal.valueOf(149000))
+                    .paymentMethod(Order.PaymentMethod.COD)
+                    .build());
+                orderItemRepository.saveAll(List.of(item(order, variant, 1), item(order, variant, 2)));
+            }
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (Long userId : userIds) {
+            jdbcTemplate.update("DELETE oi FROM order_items oi JOIN orders o ON o.id = oi.order_id WHERE o.user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+        for (Long voucherId : voucherIds) {
+            jdbcTemplate.update("DELETE FROM vouchers WHERE id = ?", voucherId);
+        }
+        jdbcTemplate.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id = ?", category.getId());
+    }
+
+    @Test
+    void allOrdersPageUsesConstantQueries() {
+        // Trang đơn + đếm tổng + items của cả trang
+        assertConstant(3, size -> () -> orderService.getAllOrders(PageRequest.of(0, size)));
+    }
+
+    @Test
+    void ordersByStatusPageUsesConstantQueries() {
+        assertConstant(3, size -> () -> orderService.getOrdersByStatus(Order.OrderStatus.PENDING, PageRequest.of(0, size)));
+    }
+
+    @Test
+    void allOrdersCursorPageUsesConstantQueries() {
+        // Trang đơn (lấy thừa một dòng thay cho câu đếm) + items của cả trang
+        assertConstant(2, size -> () -> orderService.getAllOrdersByCursor(null, size));
+    }
+
+    @Test
+    void orderSummariesUseConstantQueries() {
+        // Một câu projection + đếm tổng, không nạp items
+        assertConstant(2, size -> () -> orderService.getOrderSummaries(null, PageRequest.of(0, size)));
+    }
+
+    // Số câu SQL không vượt ngưỡng dù trang nhỏ hay trang chứa toàn bộ đơn vừa tạo
+    // (Spring Data có thể bỏ câu đếm khi trang đầu chưa đầy nên chỉ so với ngưỡng)
+    private void assertConstant(long maxStatements, IntFunction<Supplier<?>> listing) {
+        assertThat(countStatements(listing.apply(5))).isLessThanOrEqualTo(maxStatements);
+        assertThat(countStatements(listing.apply(USERS * ORDERS_PER_USER))).isLessThanOrEqualTo(maxStatements);
+    }
+
+    private long countStatements(Supplier<?> listing) {
+        statistics.clear();
+        readOnly.execute(status -> listing.get());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private OrderItem item(Order order, ProductVariant variant, int quantity) {
+        return OrderItem.builder()
+            .order(order)
+            .variant(variant)
+            .productName(product.getName())
+            .variantName(variant.getName())
+            .unitPrice(variant.getPrice())
+            .quantity(quantity)
+            .subtotal(variant.getPrice().multiply(BigDecimal.valueOf(quantity)))
+            .build();
+    }
+}
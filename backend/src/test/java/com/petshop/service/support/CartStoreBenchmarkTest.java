@@ -0,0 +1,183 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.*;
+import com.petshop.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Đo số thao tác giỏ hàng mỗi giây (đổi số lượng + xem giỏ): cách cũ đọc / ghi thẳng qua JPA
+// so với CartStore (phục vụ từ bộ nhớ, ghi xuống DB theo lô; thời gian flush được tính vào)
+@SpringBootTest
+@ActiveProfiles("test")
+class CartStoreBenchmarkTest {
+
+    private static final int USERS = 10;
+    private static final int LINES = 5;
+    private static final int WARMUP = 500;
+    private static final int OPERATIONS = 5_000;
+    // Số thao tác giữa hai lần flush, thay cho chu kỳ ghi định kỳ (tắt trong profile test)
+    private static final int FLUSH_EVERY = 100;
+
+    @Autowired
+    private CartStore cartStore;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnly;
+    private Category category;
+    private Product product;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<CartItem> items = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        category = categoryRepository.save(Category.builder()
+            .name("Cart Bench " + suffix)
+            .slug("cart-bench-" + suffix)
+            .build());
+        product = productRepository.save(Product.builder()
+            .name("Cart Bench Product")
+            .slug("cart-bench-product-" + suffix)
+            .category(category)
+            .build());
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            variants.add(productVariantRepository.save(ProductVariant.builder()
+                .product(product)
+                .name("Variant " + i)
+                .price(BigDecimal.valueOf(50000))
+                .stock(1000)
+                .build()));
+        }
+        for (int u = 0; u < USERS; u++) {
+            User user = userRepository.save(User.builder()
+                .email("cart-bench-" + suffix + "-" + u + "@petshop.test")
+                .password("x")
+                .fullName("Cart Benchmark")
+                .build());
+            userIds.add(user.getId());
+            for (ProductVariant variant : variants) {
+                items.add(cartItemRepository.save(CartItem.builder()
+                    .user(user)
+                    .variant(variant)
+                    .quantity(1)
+                    .build()));
+            }
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (Long userId : userIds) {
+            transactionTemplate.executeWithoutResult(status -> cartStore.clear(userId));
+            jdbcTemplate.update("DELETE FROM cart_versions WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+        jdbcTemplate.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id = ?", category.getId());
+    }
+
+    @Test
+    void cartOpsPerSecond() {
+        double before = measure(this::repositoryOperation, () -> { });
+
+        // Xóa số lượng cách cũ đã ghi, để kiểm tra bên dưới chỉ thấy những gì CartStore ghi
+        jdbcTemplate.update("UPDATE cart_items SET quantity = 0 WHERE variant_id IN " +
+            "(SELECT id FROM product_variants WHERE product_id = ?)", product.getId());
+        double after = measure(this::storeOperation, cartStore::flushDirty);
+
+        System.out.printf("Cart ops/sec before (JPA): %,.0f%n", before);
+        System.out.printf("Cart ops/sec after (CartStore): %,.0f%n", after);
+
+        // Mọi thay đổi trong bộ nhớ đã được ghi xuống DB sau lần flush cuối
+        for (Long userId : userIds) {
+            for (CartStore.CartLine line : cartStore.getLines(userId)) {
+                assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE id = ?",
+                    Integer.class, line.getId())).isEqualTo(line.getQuantity());
+            }
+        }
+    }
+
+    // Cách làm trước CartStore: nạp user, biến thể, dòng giỏ rồi UPDATE; xem giỏ nạp lười biến thể, sản phẩm, ảnh
+    private void repositoryOperation(int i) {
+        CartItem item = items.get(i % items.size());
+        Long userId = item.getUser().getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.findById(userId).orElseThrow();
+            productVariantRepository.findById(item.getVariant().getId()).orElseThrow();
+            CartItem current = cartItemRepository.findByUserIdAndVariantId(userId, item.getVariant().getId())
+                .orElseThrow();
+            current.setQuantity(quantity(i));
+            cartItemRepository.save(current);
+        });
+        readOnly.executeWithoutResult(status -> cartItemRepository.findByUserIdOrderByCreatedAtDesc(userId)
+            .forEach(line -> line.getVariant().getProduct().getImages().size()));
+    }
+
+    private void storeOperation(int i) {
+        CartItem item = items.get(i % items.size());
+        Long userId = item.getUser().getId();
+        assertThat(cartStore.updateQuantity(userId, item.getId(), quantity(i))).isPresent();
+        cartStore.getLines(userId);
+    }
+
+    // Chạy các thao tác, flush sau mỗi FLUSH_EVERY thao tác (thời gian flush được tính vào)
+    private double measure(Operation operation, Runnable flush) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run(i);
+        }
+        flush.run();
+        long start = System.nanoTime();
+        for (int i = WARMUP; i < WARMUP + OPERATIONS; i++) {
+            operation.run(i);
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                flush.run();
+            }
+        }
+        flush.run();
+        long elapsed = System.nanoTime() - start;
+        return OPERATIONS * 1_000_000_000.0 / elapsed;
+    }
+
+    private static int quantity(int i) {
+        return 1 + i % 7;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int i);
+    }
+}
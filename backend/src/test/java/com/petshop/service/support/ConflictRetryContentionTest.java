@@ -0,0 +1,240 @@
+package com.petshop.service.support;
+
+import com.petshop.dto.response.ConflictStatsDTO;
+import com.petshop.entity.*;
+import com.petshop.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Cộng / trừ soldCount và usedCount bằng câu UPDATE delta chạy xen với các lần sửa entity
+// (có @Version, bọc trong ConflictRetry): bộ đếm luôn đúng, lần sửa nào xung đột thì được thử lại
+@SpringBootTest(properties = "petshop.retry.max-attempts=20")
+@ActiveProfiles("test")
+class ConflictRetryContentionTest {
+
+    private static final int THREADS = 50;
+    private static final int ORDERS = 200;
+    private static final int QUANTITY = 2;
+    private static final int EDITS = 100;
+
+    @Autowired
+    private ConflictRetry conflictRetry;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+    @Autowired
+    private VoucherRepository voucherRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Category category;
+    private Product product;
+    private Voucher voucher;
+    private User user;
+    private List<Long> orderIds;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        category = categoryRepository.save(Category.builder()
+            .name("Contention " + suffix)
+            .slug("contention-" + suffix)
+            .build());
+        product = productRepository.save(Product.builder()
+            .name("Contention Product")
+            .slug("contention-product-" + suffix)
+            .category(category)
+            .build());
+        ProductVariant variant = productVariantRepository.save(ProductVariant.builder()
+            .product(product)
+            .name("Default")
+            .price(BigDecimal.valueOf(50000))
+            .stock(10000)
+            .build());
+        voucher = voucherRepository.save(Voucher.builder()
+            .code("CT" + suffix.toUpperCase())
+            .discountType(Voucher.DiscountType.FIXED_AMOUNT)
+            .discountValue(BigDecimal.valueOf(1000))
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .build());
+        user = userRepository.save(User.builder()
+            .email("contention-" + suffix + "@petshop.test")
+            .password("x")
+            .fullName("Contention Test")
+            .build());
+
+        orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = orderRepository.save(Order.builder()
+                .orderCode("CT" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase())
+                .user(user)
+                .receiverName("Contention Test")
+                .receiverPhone("0900000000")
+                .shippingAddress("Test")
+                .totalItems(QUANTITY)
+                .subtotal(BigDecimal.valueOf(100000))
+                .totalAmount(BigDecimal.valueOf(100000))
+                .paymentMethod(Order.PaymentMethod.COD)
+                .build());
+            orderItemRepository.save(OrderItem.builder()
+                .order(order)
+                .variant(variant)
+                .productName(product.getName())
+                .unitPrice(variant.getPrice())
+                .quantity(QUANTITY)
+                .subtotal(variant.getPrice().multiply(BigDecimal.valueOf(QUANTITY)))
+                .build());
+            orderIds.add(order.getId());
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE oi FROM order_items oi JOIN orders o ON o.id = oi.order_id WHERE o.user_id = ?",
+            user.getId());
+        jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM vouchers WHERE id = ?", voucher.getId());
+        jdbcTemplate.update("DELETE FROM product_variants WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id = ?", category.getId());
+    }
+
+    @Test
+    void countersStayExactUnderConcurrentEntityEdits() throws Exception {
+        long conflictsBefore = editStats(ConflictStatsDTO::getConflicts);
+        long recoveredBefore = editStats(ConflictStatsDTO::getRecovered);
+        long exhaustedBefore = editStats(ConflictStatsDTO::getExhausted);
+
+        // Tạo đơn: mỗi đơn cộng soldCount và giữ một lượt voucher
+        List<Runnable> creates = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            creates.add(() -> conflictRetry.run("test.order-created", () -> transactionTemplate.executeWithoutResult(s -> {
+                productRepository.applySoldCount(orderId, 1);
+                assertThat(voucherRepository.claimUsage(voucher.getId())).isEqualTo(1);
+            })));
+        }
+        Outcome created = runConcurrently(creates);
+
+        assertThat(created.failed.get()).isZero();
+        assertThat(soldCount()).isEqualTo(ORDERS * QUANTITY);
+        assertThat(usedCount()).isEqualTo(ORDERS);
+
+        // Hủy một nửa số đơn: trừ soldCount và trả lượt voucher
+        List<Runnable> cancels = new ArrayList<>();
+        for (Long orderId : orderIds.subList(0, ORDERS / 2)) {
+            cancels.add(() -> conflictRetry.run("test.order-cancelled", () -> transactionTemplate.executeWithoutResult(s -> {
+                productRepository.applySoldCount(orderId, -1);
+                assertThat(voucherRepository.releaseUsage(voucher.getId())).isEqualTo(1);
+            })));
+        }
+        Outcome cancelled = runConcurrently(cancels);
+
+        assertThat(cancelled.failed.get()).isZero();
+        assertThat(soldCount()).isEqualTo(ORDERS / 2 * QUANTITY);
+        assertThat(usedCount()).isEqualTo(ORDERS / 2);
+
+        // Các lần sửa entity đọc bản cũ bị từ chối (sai version) chứ không ghi đè bộ đếm
+        assertThat(created.edits.get() + cancelled.edits.get()).isEqualTo(2 * EDITS);
+
+        // Có xung đột thật (bài test đang tạo tranh chấp) và mọi lần xung đột đều được thử lại thành công
+        assertThat(editStats(ConflictStatsDTO::getConflicts)).isGreaterThan(conflictsBefore);
+        assertThat(editStats(ConflictStatsDTO::getRecovered)).isGreaterThan(recoveredBefore);
+        assertThat(editStats(ConflictStatsDTO::getExhausted)).isEqualTo(exhaustedBefore);
+    }
+
+    // Cộng dồn một chỉ số của các lần sửa entity (thống kê của ConflictRetry tính từ lúc khởi động)
+    private long editStats(ToLongFunction<ConflictStatsDTO> metric) {
+        return conflictRetry.getStats().stream()
+            .filter(stats -> stats.getOperation().equals("test.product-edit")
+                || stats.getOperation().equals("test.voucher-edit"))
+            .mapToLong(metric)
+            .sum();
+    }
+
+    // Chạy các thao tác bộ đếm xen kẽ với EDITS lần sửa product và voucher qua entity
+    private Outcome runConcurrently(List<Runnable> counterUpdates) throws Exception {
+        Outcome outcome = new Outcome();
+        List<Runnable> tasks = new ArrayList<>(counterUpdates);
+        for (int i = 0; i < EDITS; i++) {
+            String text = "edit " + i;
+            tasks.add(() -> {
+                conflictRetry.run("test.product-edit", () -> transactionTemplate.executeWithoutResult(s ->
+                    productRepository.findById(product.getId()).orElseThrow().setDescription(text)));
+                conflictRetry.run("test.voucher-edit", () -> transactionTemplate.executeWithoutResult(s ->
+                    voucherRepository.findById(voucher.getId()).orElseThrow().setDescription(text)));
+                outcome.edits.incrementAndGet();
+            });
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Runnable task : tasks) {
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        task.run();
+                    } catch (RuntimeException | AssertionError e) {
+                        outcome.failed.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        return outcome;
+    }
+
+    private int soldCount() {
+        return jdbcTemplate.queryForObject("SELECT sold_count FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+
+    private int usedCount() {
+        return jdbcTemplate.queryForObject("SELECT used_count FROM vouchers WHERE id = ?", Integer.class, voucher.getId());
+    }
+
+    private static final class Outcome {
+        private final AtomicInteger edits = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+    }
+}
@@ -0,0 +1,187 @@
+package com.petshop.service.support;
+
+import com.petshop.entity.Order;
+import com.petshop.entity.User;
+import com.petshop.entity.Voucher;
+import com.petshop.exception.BadRequestException;
+import com.petshop.repository.OrderRepository;
+import com.petshop.repository.UserRepository;
+import com.petshop.repository.VoucherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Nhiều đơn cùng dùng một voucher: tổng lượt dùng và lượt theo user không bao giờ vượt giới hạn
+@SpringBootTest
+@ActiveProfiles("test")
+class VoucherRedeemerConcurrencyTest {
+
+    private static final int THREADS = 50;
+
+    @Autowired
+    private VoucherRedeemer voucherRedeemer;
+    @Autowired
+    private VoucherRepository voucherRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> voucherIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (Long voucherId : voucherIds) {
+            jdbcTemplate.update("DELETE FROM voucher_redemptions WHERE voucher_id = ?", voucherId);
+        }
+        for (Long userId : userIds) {
+            jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+        for (Long voucherId : voucherIds) {
+            jdbcTemplate.update("DELETE FROM vouchers WHERE id = ?", voucherId);
+        }
+    }
+
+    @Test
+    void concurrentRedemptionsNeverExceedUsageLimit() throws Exception {
+        Voucher voucher = createVoucher(100, null);
+        User user = createUser();
+        List<Long> orderIds = createOrders(user, 500);
+
+        RedeemCounts counts = redeemConcurrently(voucher.getId(), user.getId(), orderIds);
+
+        assertThat(counts.redeemed.get()).isEqualTo(100);
+        assertThat(counts.rejected.get()).isEqualTo(400);
+        assertThat(counts.unexpected.get()).isZero();
+        assertThat(voucherRepository.findById(voucher.getId()).orElseThrow().getUsedCount()).isEqualTo(100);
+        assertThat(countRedemptions(voucher.getId())).isEqualTo(100);
+    }
+
+    @Test
+    void concurrentRedemptionsRespectPerUserLimit() throws Exception {
+        Voucher voucher = createVoucher(100, 1);
+        User user = createUser();
+        List<Long> orderIds = createOrders(user, 50);
+
+        RedeemCounts counts = redeemConcurrently(voucher.getId(), user.getId(), orderIds);
+
+        assertThat(counts.redeemed.get()).isEqualTo(1);
+        assertThat(counts.rejected.get()).isEqualTo(49);
+        assertThat(counts.unexpected.get()).isZero();
+        // Lượt đã giữ của các đơn bị từ chối được trả lại khi transaction rollback
+        assertThat(voucherRepository.findById(voucher.getId()).orElseThrow().getUsedCount()).isEqualTo(1);
+        assertThat(countRedemptions(voucher.getId())).isEqualTo(1);
+    }
+
+    // Mỗi đơn một transaction riêng, tất cả cùng xuất phát sau một hiệu lệnh
+    private RedeemCounts redeemConcurrently(Long voucherId, Long userId, List<Long> orderIds) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        RedeemCounts counts = new RedeemCounts();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Long orderId : orderIds) {
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> voucherRedeemer.redeem(
+                            voucherRepository.findById(voucherId).orElseThrow(),
+                            userRepository.getReferenceById(userId),
+                            orderRepository.getReferenceById(orderId)));
+                        counts.redeemed.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        counts.rejected.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        counts.unexpected.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        return counts;
+    }
+
+    private Voucher createVoucher(int usageLimit, Integer usageLimitPerUser) {
+        Voucher voucher = voucherRepository.save(Voucher.builder()
+            .code("TEST" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+            .discountType(Voucher.DiscountType.FIXED_AMOUNT)
+            .discountValue(BigDecimal.valueOf(10000))
+            .usageLimit(usageLimit)
+            .usageLimitPerUser(usageLimitPerUser)
+            .startDate(LocalDateTime.now().minusDays(1))
+            .endDate(LocalDateTime.now().plusDays(1))
+            .build());
+        voucherIds.add(voucher.getId());
+        return voucher;
+    }
+
+    private User createUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+            .email("voucher-test-" + suffix + "@petshop.test")
+            .password("x")
+            .fullName("Voucher Test")
+            .role(User.Role.CUSTOMER)
+            .active(true)
+            .build());
+        userIds.add(user.getId());
+        return user;
+    }
+
+    private List<Long> createOrders(User user, int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(Order.builder()
+                .orderCode("VT" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase())
+                .user(user)
+                .receiverName("Voucher Test")
+                .receiverPhone("0900000000")
+                .shippingAddress("Test")
+                .totalItems(1)
+                .subtotal(BigDecimal.valueOf(100000))
+                .totalAmount(BigDecimal.valueOf(100000))
+                .paymentMethod(Order.PaymentMethod.COD)
+                .build());
+        }
+        return orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+
+    private long countRedemptions(Long voucherId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM voucher_redemptions WHERE voucher_id = ?", Long.class, voucherId);
+    }
+
+    private static final class RedeemCounts {
+        private final AtomicInteger redeemed = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private final AtomicInteger unexpected = new AtomicInteger();
+    }
+}